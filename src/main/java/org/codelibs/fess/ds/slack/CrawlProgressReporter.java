@@ -0,0 +1,456 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fess.ds.slack.api.type.Channel;
+
+/**
+ * Periodically logs the progress of a crawl instead of a line per document: the overall and
+ * per-channel rates of messages and files, the rate of Slack API calls, the depths of the work
+ * queues and the estimated time until the remaining channels are crawled. It also decides which
+ * crawled URLs are logged, so that per-URL logging can be sampled.
+ * <p>
+ * A channel is crawled once its messages and files are listed and the work queued for them on the
+ * executor, the download scheduler and the extraction pool has finished, so the per-channel lines
+ * and the estimate follow indexing rather than listing. Queued work is counted per channel by
+ * wrapping it with {@link #track(Channel, Runnable)}.
+ */
+public class CrawlProgressReporter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(CrawlProgressReporter.class);
+
+    /** Interval between progress reports in milliseconds, or 0 to only log the summary. */
+    protected final long intervalMillis;
+
+    /** Every how many crawled URLs one is logged, or 0 to not log them. */
+    protected final long urlLogSample;
+
+    /** Logs the reports, or null. */
+    protected final ScheduledExecutorService reportScheduler;
+
+    /** Depths of the work queues keyed by queue name. */
+    protected final Map<String, IntSupplier> queues = new ConcurrentSkipListMap<>();
+
+    /** Progress of the channels being listed or with work in flight, keyed by channel ID. */
+    protected final Map<String, ChannelProgress> channels = new ConcurrentHashMap<>();
+
+    /** Number of messages crawled. */
+    protected final LongAdder messageCount = new LongAdder();
+
+    /** Number of files crawled. */
+    protected final LongAdder fileCount = new LongAdder();
+
+    /** Number of file bytes downloaded. */
+    protected final LongAdder downloadedBytes = new LongAdder();
+
+    /** Number of URLs seen for sampling. */
+    protected final AtomicLong urlCount = new AtomicLong();
+
+    /** Number of channels crawled. */
+    protected final AtomicInteger finishedChannels = new AtomicInteger();
+
+    /** Time the crawl started. */
+    protected final long startNanos;
+
+    /** Number of channels to crawl, or 0 if unknown. */
+    protected volatile int totalChannels;
+
+    /** Number of API calls made so far. */
+    protected volatile LongSupplier requestCounter = () -> 0L;
+
+    /** Number of API calls made before the crawl started. */
+    protected volatile long startRequests;
+
+    /** Time of the previous report; guarded by this. */
+    private long lastNanos;
+
+    /** Number of messages at the previous report; guarded by this. */
+    private long lastMessages;
+
+    /** Number of files at the previous report; guarded by this. */
+    private long lastFiles;
+
+    /** Number of downloaded bytes at the previous report; guarded by this. */
+    private long lastDownloadedBytes;
+
+    /** Number of API calls at the previous report; guarded by this. */
+    private long lastRequests;
+
+    /**
+     * Creates a reporter and starts reporting.
+     *
+     * @param intervalMillis the interval between reports, or 0 to only log the summary on close
+     * @param urlLogSample every how many crawled URLs one is logged at INFO, or 0 to not log them
+     */
+    public CrawlProgressReporter(final long intervalMillis, final long urlLogSample) {
+        this.intervalMillis = Math.max(0L, intervalMillis);
+        this.urlLogSample = Math.max(0L, urlLogSample);
+        this.startNanos = System.nanoTime();
+        this.lastNanos = startNanos;
+        if (this.intervalMillis > 0L) {
+            reportScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "SlackProgress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reportScheduler.scheduleWithFixedDelay(this::report, this.intervalMillis, this.intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            reportScheduler = null;
+        }
+    }
+
+    /**
+     * Sets the counter of the Slack API calls. Calls made before this method is called are not reported.
+     *
+     * @param requestCounter the counter of API calls
+     */
+    public void countRequests(final LongSupplier requestCounter) {
+        this.requestCounter = requestCounter;
+        this.startRequests = requestCounter.getAsLong();
+        synchronized (this) {
+            lastRequests = startRequests;
+        }
+    }
+
+    /**
+     * Adds a work queue whose depth is reported.
+     *
+     * @param name the queue name
+     * @param depth the supplier of the queue depth
+     */
+    public void addQueue(final String name, final IntSupplier depth) {
+        queues.put(name, depth);
+    }
+
+    /**
+     * Sets the number of channels to crawl, from which the remaining time is estimated.
+     *
+     * @param totalChannels the number of channels
+     */
+    public void setTotalChannels(final int totalChannels) {
+        this.totalChannels = totalChannels;
+    }
+
+    /**
+     * Records that a channel is being crawled.
+     *
+     * @param channel the channel
+     */
+    public void channelStarted(final Channel channel) {
+        if (channel.getId() != null) {
+            channels.put(channel.getId(), new ChannelProgress(channel.getName()));
+        }
+    }
+
+    /**
+     * Records that the messages and files of a channel have been listed. The channel is crawled once
+     * the work queued for it has finished.
+     *
+     * @param channel the channel
+     */
+    public void channelFinished(final Channel channel) {
+        if (channel.getId() == null) {
+            finishedChannels.incrementAndGet();
+            return;
+        }
+        channels.computeIfPresent(channel.getId(), (id, progress) -> {
+            progress.listed = true;
+            return release(progress, 0);
+        });
+    }
+
+    /**
+     * Counts a task as in flight for a channel until it has run. A task queued for a channel that
+     * was already crawled, such as a workspace file, reports the channel again until it has run,
+     * without counting the channel twice.
+     *
+     * @param channel the channel the task works for
+     * @param task the task
+     * @return the task, counted for the channel
+     */
+    public Runnable track(final Channel channel, final Runnable task) {
+        final String channelId = channel.getId();
+        if (channelId == null) {
+            return task;
+        }
+        channels.compute(channelId, (id, progress) -> {
+            final ChannelProgress tracked = progress != null ? progress : new ChannelProgress(channel.getName(), true);
+            tracked.inFlight++;
+            return tracked;
+        });
+        return () -> {
+            try {
+                task.run();
+            } finally {
+                channels.computeIfPresent(channelId, (id, progress) -> release(progress, 1));
+            }
+        };
+    }
+
+    /**
+     * Releases finished tasks of a channel, called while the channel entry is locked.
+     *
+     * @param progress the channel progress
+     * @param tasks the number of finished tasks
+     * @return the progress, or null to remove it once the channel is listed and has no work in flight
+     */
+    private ChannelProgress release(final ChannelProgress progress, final int tasks) {
+        progress.inFlight -= tasks;
+        if (!progress.listed || progress.inFlight > 0) {
+            return progress;
+        }
+        if (!progress.reopened) {
+            finishedChannels.incrementAndGet();
+        }
+        return null;
+    }
+
+    /**
+     * Records a crawled message.
+     *
+     * @param channel the channel of the message
+     */
+    public void recordMessage(final Channel channel) {
+        messageCount.increment();
+        final ChannelProgress progress = channel.getId() != null ? channels.get(channel.getId()) : null;
+        if (progress != null) {
+            progress.messageCount.increment();
+        }
+    }
+
+    /**
+     * Records a crawled file.
+     *
+     * @param channel the channel of the file
+     */
+    public void recordFile(final Channel channel) {
+        fileCount.increment();
+        final ChannelProgress progress = channel.getId() != null ? channels.get(channel.getId()) : null;
+        if (progress != null) {
+            progress.fileCount.increment();
+        }
+    }
+
+    /**
+     * Records downloaded file bytes.
+     *
+     * @param bytes the number of bytes
+     */
+    public void recordDownload(final long bytes) {
+        downloadedBytes.add(bytes);
+    }
+
+    /**
+     * Returns whether the next crawled URL should be logged at INFO.
+     *
+     * @return true for one URL out of the sample size
+     */
+    public boolean sampleUrl() {
+        return urlLogSample > 0L && urlCount.incrementAndGet() % urlLogSample == 0L;
+    }
+
+    /**
+     * Returns the number of crawled messages.
+     *
+     * @return the number of messages
+     */
+    public long getMessageCount() {
+        return messageCount.sum();
+    }
+
+    /**
+     * Returns the number of crawled files.
+     *
+     * @return the number of files
+     */
+    public long getFileCount() {
+        return fileCount.sum();
+    }
+
+    /**
+     * Logs the progress since the previous report.
+     */
+    public void report() {
+        try {
+            if (logger.isInfoEnabled()) {
+                buildReport(System.nanoTime()).forEach(logger::info);
+            }
+        } catch (final Exception e) {
+            logger.warn("Failed to report the crawl progress.", e);
+        }
+    }
+
+    /**
+     * Builds the lines of a progress report: the overall progress followed by one line per channel
+     * being crawled. Rates are per second since the previous report.
+     *
+     * @param nowNanos the current time
+     * @return the report lines
+     */
+    protected synchronized List<String> buildReport(final long nowNanos) {
+        final double seconds = Math.max(1L, nowNanos - lastNanos) / 1e9;
+        final long messages = messageCount.sum();
+        final long files = fileCount.sum();
+        final long downloaded = downloadedBytes.sum();
+        final long requests = requestCounter.getAsLong();
+        final int finished = finishedChannels.get();
+        final int total = totalChannels;
+
+        final StringBuilder buf = new StringBuilder(200);
+        buf.append("Crawl progress: ").append(finished).append('/').append(total > 0 ? Integer.toString(total) : "?").append(" channels, ");
+        appendCount(buf, messages, messages - lastMessages, seconds, "messages").append(", ");
+        appendCount(buf, files, files - lastFiles, seconds, "files").append(", ");
+        appendCount(buf, downloaded, downloaded - lastDownloadedBytes, seconds, "bytes downloaded").append(", ");
+        appendCount(buf, requests - startRequests, requests - lastRequests, seconds, "API calls");
+        if (!queues.isEmpty()) {
+            buf.append(", queues:");
+            queues.forEach((name, depth) -> buf.append(' ').append(name).append('=').append(depth.getAsInt()));
+        }
+        buf.append(", ETA ");
+        final long etaMillis = estimateRemainingMillis(nowNanos, finished, total);
+        if (etaMillis < 0L) {
+            buf.append("unknown");
+        } else {
+            appendDuration(buf, etaMillis);
+        }
+
+        final List<String> lines = new ArrayList<>();
+        lines.add(buf.toString());
+        channels.values().forEach(progress -> {
+            final long channelMessages = progress.messageCount.sum();
+            final long channelFiles = progress.fileCount.sum();
+            final StringBuilder line = new StringBuilder(100);
+            line.append("  #").append(progress.name).append(": ");
+            appendCount(line, channelMessages, channelMessages - progress.lastMessages, seconds, "messages").append(", ");
+            appendCount(line, channelFiles, channelFiles - progress.lastFiles, seconds, "files");
+            progress.lastMessages = channelMessages;
+            progress.lastFiles = channelFiles;
+            lines.add(line.toString());
+        });
+
+        lastNanos = nowNanos;
+        lastMessages = messages;
+        lastFiles = files;
+        lastDownloadedBytes = downloaded;
+        lastRequests = requests;
+        return lines;
+    }
+
+    /**
+     * Estimates the time left from the average time spent per crawled channel.
+     *
+     * @param nowNanos the current time
+     * @param finished the number of crawled channels
+     * @param total the number of channels to crawl
+     * @return the remaining time in milliseconds, or -1 if it cannot be estimated yet
+     */
+    protected long estimateRemainingMillis(final long nowNanos, final int finished, final int total) {
+        if (finished <= 0 || total <= 0) {
+            return -1L;
+        }
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(nowNanos - startNanos);
+        return elapsedMillis * Math.max(0, total - finished) / finished;
+    }
+
+    @Override
+    public void close() {
+        if (reportScheduler != null) {
+            reportScheduler.shutdownNow();
+        }
+        logger.info("Crawled {} messages and {} files from {} channels with {} API calls in {}ms.", messageCount.sum(), fileCount.sum(),
+                finishedChannels.get(), requestCounter.getAsLong() - startRequests,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    private static StringBuilder appendCount(final StringBuilder buf, final long count, final long delta, final double seconds,
+            final String unit) {
+        return buf.append(count).append(' ').append(unit).append(" (").append(String.format(Locale.ROOT, "%.1f", delta / seconds))
+                .append("/s)");
+    }
+
+    private static StringBuilder appendDuration(final StringBuilder buf, final long millis) {
+        final long totalSeconds = millis / 1000L;
+        return buf.append(String.format(Locale.ROOT, "%d:%02d:%02d", totalSeconds / 3600L, totalSeconds / 60L % 60L, totalSeconds % 60L));
+    }
+
+    /**
+     * The counters of a channel being crawled.
+     */
+    protected static class ChannelProgress {
+
+        /** The channel name. */
+        protected final String name;
+
+        /** Number of messages crawled. */
+        protected final LongAdder messageCount = new LongAdder();
+
+        /** Number of files crawled. */
+        protected final LongAdder fileCount = new LongAdder();
+
+        /** Number of messages at the previous report; guarded by the reporter. */
+        protected long lastMessages;
+
+        /** Number of files at the previous report; guarded by the reporter. */
+        protected long lastFiles;
+
+        /** Whether the channel was already counted as crawled when its entry was created. */
+        protected final boolean reopened;
+
+        /** Whether the messages and files of the channel have been listed; guarded by the channel entry. */
+        protected boolean listed;
+
+        /** Number of tasks in flight for the channel; guarded by the channel entry. */
+        protected int inFlight;
+
+        /**
+         * Creates the counters of a channel being listed.
+         *
+         * @param name the channel name
+         */
+        protected ChannelProgress(final String name) {
+            this(name, false);
+        }
+
+        /**
+         * Creates the counters of a channel.
+         *
+         * @param name the channel name
+         * @param reopened true if the channel was already counted as crawled, so that it is only reported
+         */
+        protected ChannelProgress(final String name, final boolean reopened) {
+            this.name = name;
+            this.reopened = reopened;
+            this.listed = reopened;
+        }
+    }
+}
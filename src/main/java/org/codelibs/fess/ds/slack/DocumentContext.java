@@ -0,0 +1,178 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.Map;
+
+import org.codelibs.fess.Constants;
+import org.codelibs.fess.ds.callback.IndexUpdateCallback;
+import org.codelibs.fess.entity.DataStoreParams;
+import org.codelibs.fess.helper.CrawlerStatsHelper;
+import org.codelibs.fess.helper.CrawlerStatsHelper.StatsAction;
+import org.codelibs.fess.helper.CrawlerStatsHelper.StatsKeyObject;
+
+/**
+ * The crawl state of one message or file document. Documents are processed concurrently on the
+ * crawl executor, so each document records its statistics and stores its data through its own
+ * context, whose parameters carry its stats key, instead of writing the stats key into the
+ * parameters shared by the whole crawl. The stats key is layered over the crawl parameters, which
+ * are not copied per document.
+ */
+public class DocumentContext {
+
+    /** The stats key of the document. */
+    protected final StatsKeyObject statsKey;
+
+    /** The parameters passed to the index update callback, carrying the stats key. */
+    protected final DataStoreParams paramMap;
+
+    /** The stats helper. */
+    protected final CrawlerStatsHelper crawlerStatsHelper;
+
+    /**
+     * Creates the context of a document.
+     *
+     * @param crawlParamMap the parameters of the crawl, which are not modified while the crawl runs
+     * @param url the URL identifying the document in the stats
+     * @param crawlerStatsHelper the stats helper
+     */
+    public DocumentContext(final DataStoreParams crawlParamMap, final String url, final CrawlerStatsHelper crawlerStatsHelper) {
+        this.statsKey = new StatsKeyObject(url);
+        this.paramMap = new DocumentParams(crawlParamMap);
+        this.paramMap.put(Constants.CRAWLER_STATS_KEY, statsKey);
+        this.crawlerStatsHelper = crawlerStatsHelper;
+    }
+
+    /**
+     * Starts recording the stats of the document.
+     */
+    public void begin() {
+        crawlerStatsHelper.begin(statsKey);
+    }
+
+    /**
+     * Records a stats action of the document.
+     *
+     * @param action the action
+     */
+    public void record(final StatsAction action) {
+        crawlerStatsHelper.record(statsKey, action);
+    }
+
+    /**
+     * Discards the stats of the document, which is not indexed.
+     */
+    public void discard() {
+        crawlerStatsHelper.discard(statsKey);
+    }
+
+    /**
+     * Finishes recording the stats of the document.
+     */
+    public void done() {
+        crawlerStatsHelper.done(statsKey);
+    }
+
+    /**
+     * Stores the document data through the callback, using the indexed URL as the stats URL.
+     *
+     * @param callback the index update callback
+     * @param dataMap the document data
+     */
+    public void store(final IndexUpdateCallback callback, final Map<String, Object> dataMap) {
+        if (dataMap.get("url") instanceof String statsUrl) {
+            statsKey.setUrl(statsUrl);
+        }
+        callback.store(paramMap, dataMap);
+        crawlerStatsHelper.record(statsKey, StatsAction.FINISHED);
+    }
+
+    /**
+     * Returns the stats key of the document.
+     *
+     * @return the stats key
+     */
+    public StatsKeyObject getStatsKey() {
+        return statsKey;
+    }
+
+    /**
+     * Returns the parameters of the document, carrying its stats key.
+     *
+     * @return the parameters
+     */
+    public DataStoreParams getParamMap() {
+        return paramMap;
+    }
+
+    /**
+     * The parameters of a document: the entries written for the document layered over the
+     * parameters of the crawl, which are read through and never copied or modified.
+     */
+    protected static class DocumentParams extends DataStoreParams {
+
+        /** The crawl parameters with the entries written for the document. */
+        protected final LayeredContextMap layeredParams;
+
+        /**
+         * Creates the parameters of a document.
+         *
+         * @param crawlParamMap the parameters of the crawl
+         */
+        protected DocumentParams(final DataStoreParams crawlParamMap) {
+            layeredParams = new LayeredContextMap(crawlParamMap.asMap());
+        }
+
+        @Override
+        public void put(final String key, final Object value) {
+            layeredParams.put(key, value);
+        }
+
+        @Override
+        public Object get(final String key) {
+            return layeredParams.get(key);
+        }
+
+        @Override
+        public String getAsString(final String key) {
+            final Object value = layeredParams.get(key);
+            return value != null ? value.toString() : null;
+        }
+
+        @Override
+        public String getAsString(final String key, final String defaultValue) {
+            final String value = getAsString(key);
+            return value != null ? value : defaultValue;
+        }
+
+        @Override
+        public boolean containsKey(final String key) {
+            return layeredParams.containsKey(key);
+        }
+
+        @Override
+        public Map<String, Object> asMap() {
+            return layeredParams;
+        }
+
+        @Override
+        public DataStoreParams newInstance() {
+            final DataStoreParams params = new DataStoreParams();
+            layeredParams.forEach(params::put);
+            return params;
+        }
+    }
+}
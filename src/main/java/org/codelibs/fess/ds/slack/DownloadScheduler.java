@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the downloads from files.slack.com on their own threads, independently of the threads
+ * calling the Slack API. The number of concurrent downloads and their total bytes per second are
+ * capped, and the smallest files are downloaded first so that as many documents as possible are
+ * indexed per second while large files wait. The number of queued downloads is bounded: a worker
+ * handing over a file waits while the queue is full, so the crawl does not get far ahead of the
+ * downloads.
+ */
+public class DownloadScheduler implements AutoCloseable {
+
+    /** The download threads, or null to download on the calling thread. */
+    protected final ThreadPoolExecutor executor;
+
+    /** Permits of the running and queued downloads, or null without threads. */
+    protected final Semaphore permits;
+
+    /** Maximum total bytes per second of the downloads, or 0 for no limit. */
+    protected final long bytesPerSecond;
+
+    /** Orders the downloads of files of the same size. */
+    protected final AtomicLong sequence = new AtomicLong();
+
+    /** Guards the byte budget. */
+    protected final Object budgetLock = new Object();
+
+    /** Time from which the next bytes may be read; guarded by budgetLock. */
+    protected long nextAvailableNanos = System.nanoTime();
+
+    /**
+     * Creates a download scheduler.
+     *
+     * @param concurrency the maximum number of concurrent downloads, or 0 to download on the calling thread
+     * @param queueSize the number of downloads waiting for a thread
+     * @param bytesPerSecond the maximum total bytes per second, or 0 for no limit
+     */
+    public DownloadScheduler(final int concurrency, final int queueSize, final long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0L, bytesPerSecond);
+        if (concurrency > 0) {
+            permits = new Semaphore(concurrency + Math.max(1, queueSize));
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), r -> {
+                final Thread thread = new Thread(r, "SlackDownload-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, (r, e) -> r.run());
+        } else {
+            permits = null;
+            executor = null;
+        }
+    }
+
+    /**
+     * Queues a download, which runs before the queued downloads of larger files, waiting while the
+     * queue is full. The task runs on the calling thread if the scheduler has no threads, is shut down
+     * or the wait is interrupted, so that every task runs exactly once.
+     *
+     * @param size the size of the file in bytes, or a negative value if unknown
+     * @param task the download
+     */
+    public void execute(final long size, final Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.run();
+            return;
+        }
+        executor.execute(new Job(size >= 0L ? size : Long.MAX_VALUE, sequence.getAndIncrement(), () -> {
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }));
+    }
+
+    /**
+     * Wraps a download stream so that its reads count against the bytes per second of all downloads.
+     *
+     * @param in the stream
+     * @return the throttled stream, or the stream itself if there is no limit
+     */
+    public InputStream throttle(final InputStream in) {
+        if (bytesPerSecond <= 0L) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b >= 0) {
+                    acquireBytes(1L);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int n = super.read(b, off, len);
+                if (n > 0) {
+                    acquireBytes(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Waits until bytes fit in the bytes per second of all downloads.
+     *
+     * @param bytes the number of bytes read
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    protected void acquireBytes(final long bytes) throws InterruptedIOException {
+        if (bytesPerSecond <= 0L) {
+            return;
+        }
+        final long waitNanos;
+        synchronized (budgetLock) {
+            final long now = System.nanoTime();
+            final long start = Math.max(now, nextAvailableNanos);
+            nextAvailableNanos = start + (long) (bytes * 1e9 / bytesPerSecond);
+            waitNanos = start - now;
+        }
+        if (waitNanos > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling the download.");
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of concurrent downloads.
+     *
+     * @return the number of download threads, or 0 if downloads run on the calling thread
+     */
+    public int getConcurrency() {
+        return executor != null ? executor.getCorePoolSize() : 0;
+    }
+
+    /**
+     * Returns the number of downloads waiting for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueSize() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Stops accepting downloads and waits for the queued ones to finish.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all downloads finished
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (executor == null) {
+            return true;
+        }
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A queued download, ordered by file size and then by submission.
+     *
+     * @param size the file size
+     * @param seq the submission number
+     * @param task the download
+     */
+    protected record Job(long size, long seq, Runnable task) implements Runnable, Comparable<Job> {
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(final Job other) {
+            final int result = Long.compare(size, other.size);
+            return result != 0 ? result : Long.compare(seq, other.seq);
+        }
+    }
+}
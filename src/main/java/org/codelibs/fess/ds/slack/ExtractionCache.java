@@ -0,0 +1,262 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * A size-bounded cache of extracted file text in a local directory, kept across crawls. Entries are
+ * gzip-compressed files named by the hash of their key; Slack files do not change once uploaded,
+ * so a file ID with its timestamp and size identifies the extracted text. When the directory grows
+ * over its maximum size, the least recently used entries are deleted. The last modified time of an
+ * entry is updated when it is read, so the recency order survives restarts.
+ */
+public class ExtractionCache {
+
+    private static final Logger logger = LogManager.getLogger(ExtractionCache.class);
+
+    /** Suffix of the entry files. */
+    protected static final String ENTRY_SUFFIX = ".txt.gz";
+
+    /** The cache directory. */
+    protected final Path cacheDir;
+
+    /** Maximum total size in bytes of the entry files. */
+    protected final long maxBytes;
+
+    /** Sizes of the entry files keyed by file name, in least recently used order; guarded by this. */
+    protected final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Total size of the entry files; guarded by this. */
+    protected long totalBytes;
+
+    /** Number of cache hits. */
+    protected final AtomicLong hitCount = new AtomicLong();
+
+    /** Number of cache misses. */
+    protected final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Opens the cache in a directory, indexing the entries left by earlier crawls.
+     *
+     * @param cacheDir the cache directory, created if missing
+     * @param maxBytes the maximum total size in bytes of the entry files
+     * @throws IOException if the directory cannot be read
+     */
+    public ExtractionCache(final Path cacheDir, final long maxBytes) throws IOException {
+        this.cacheDir = cacheDir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(cacheDir);
+        final List<Path> paths = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            stream.filter(path -> path.getFileName().toString().endsWith(ENTRY_SUFFIX)).forEach(paths::add);
+        }
+        final Map<Path, FileTime> lastModifiedTimes = new HashMap<>();
+        for (final Path path : paths) {
+            try {
+                lastModifiedTimes.put(path, Files.getLastModifiedTime(path));
+            } catch (final IOException e) {
+                logger.debug("Failed to read {}", path, e);
+            }
+        }
+        paths.removeIf(path -> !lastModifiedTimes.containsKey(path));
+        paths.sort(Comparator.comparing(lastModifiedTimes::get));
+        for (final Path path : paths) {
+            try {
+                final long size = Files.size(path);
+                entries.put(path.getFileName().toString(), size);
+                totalBytes += size;
+            } catch (final IOException e) {
+                logger.debug("Failed to read {}", path, e);
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Returns the key of the extracted text of a file. The text depends on how it was extracted, so
+     * the key includes the extraction, such as the extractor name or the length limit of the worker.
+     *
+     * @param fileId the file ID
+     * @param timestamp the upload timestamp of the file
+     * @param size the file size
+     * @param extraction how the text is extracted
+     * @return the key
+     */
+    public static String key(final String fileId, final Long timestamp, final Long size, final String extraction) {
+        return fileId + ':' + timestamp + ':' + size + ':' + extraction;
+    }
+
+    /**
+     * Returns the cached text for a key.
+     *
+     * @param key the key
+     * @return the text, or null if it is not cached
+     */
+    public String get(final String key) {
+        final String name = fileName(key);
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                missCount.incrementAndGet();
+                return null;
+            }
+        }
+        final Path path = cacheDir.resolve(name);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            final String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            hitCount.incrementAndGet();
+            return text;
+        } catch (final NoSuchFileException e) {
+            remove(name);
+        } catch (final IOException e) {
+            logger.warn("Failed to read the cached text of {}", key, e);
+            remove(name);
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches the text for a key, deleting the least recently used entries over the maximum size.
+     *
+     * @param key the key
+     * @param text the text
+     */
+    public void put(final String key, final String text) {
+        final String name = fileName(key);
+        final Path path = cacheDir.resolve(name);
+        Path tempPath = null;
+        try {
+            tempPath = Files.createTempFile(cacheDir, "entry-", ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempPath))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            final long size = Files.size(tempPath);
+            if (size > maxBytes) {
+                return;
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempPath = null;
+            synchronized (this) {
+                final Long oldSize = entries.put(name, size);
+                totalBytes += size - (oldSize != null ? oldSize : 0L);
+            }
+            evict();
+        } catch (final IOException e) {
+            logger.warn("Failed to cache the text of {}", key, e);
+        } finally {
+            if (tempPath != null) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch (final IOException e) {
+                    logger.warn("Failed to delete {}", tempPath, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cache hits.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of cache misses.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total size of the entry files.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        final List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                final Map.Entry<String, Long> entry = it.next();
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                it.remove();
+            }
+        }
+        for (final String name : evicted) {
+            try {
+                Files.deleteIfExists(cacheDir.resolve(name));
+            } catch (final IOException e) {
+                logger.warn("Failed to delete the cached text {}", name, e);
+            }
+        }
+    }
+
+    private synchronized void remove(final String name) {
+        final Long size = entries.remove(name);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private static String fileName(final String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).toString() + ENTRY_SUFFIX;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the CPU-bound extraction of downloaded files on its own threads, so that the crawl workers
+ * calling the Slack API are not blocked by large documents. The queue of the pool is bounded: a
+ * worker handing over a file waits while the queue is full. Each extraction can be limited in time;
+ * the extracting thread is interrupted when the time is up. The limit is best-effort: most parsers
+ * ignore interrupts, so a parser that spins keeps its thread until it returns, and its result is then
+ * discarded. {@link ExtractionWorkerPool} kills the extraction instead.
+ */
+public class ExtractionPool implements AutoCloseable {
+
+    private static final int RUNNING = 0;
+
+    private static final int DONE = 1;
+
+    private static final int TIMED_OUT = 2;
+
+    /** The extraction threads, or null to extract on the calling thread. */
+    protected final ThreadPoolExecutor executor;
+
+    /** Interrupts the extractions that run out of time, or null. */
+    protected final ScheduledExecutorService watchdog;
+
+    /** Maximum time in milliseconds of an extraction, or 0 for no limit. */
+    protected final long timeoutMillis;
+
+    /**
+     * Creates an extraction pool.
+     *
+     * @param threads the number of extraction threads, or 0 to extract on the calling thread
+     * @param queueSize the number of extractions waiting for a thread
+     * @param timeoutMillis the maximum time of an extraction, or 0 for no limit
+     */
+    public ExtractionPool(final int threads, final int queueSize, final long timeoutMillis) {
+        this.timeoutMillis = Math.max(0L, timeoutMillis);
+        if (threads > 0) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                        final Thread thread = new Thread(r, "SlackExtraction-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, (r, e) -> {
+                        if (e.isShutdown()) {
+                            r.run();
+                            return;
+                        }
+                        try {
+                            e.getQueue().put(r);
+                        } catch (final InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            r.run();
+                        }
+                    });
+        } else {
+            executor = null;
+        }
+        if (this.timeoutMillis > 0L) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "SlackExtractionWatchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            watchdog = null;
+        }
+    }
+
+    /**
+     * Runs a task on an extraction thread, waiting while the queue is full. The task runs on the
+     * calling thread if the pool has no threads, is shut down or the wait is interrupted, so that
+     * every task runs exactly once.
+     *
+     * @param task the task
+     */
+    public void execute(final Runnable task) {
+        if (executor == null) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Runs an extraction on the current thread within the extraction timeout. When the time is up the
+     * thread is interrupted, but the extraction runs on until it returns if it ignores the interrupt.
+     *
+     * @param <T> the result type
+     * @param extraction the extraction
+     * @return the result of the extraction
+     * @throws Exception if the extraction fails
+     * @throws ExtractionTimeoutException if the extraction does not finish in time, even if it then returns a result
+     */
+    public <T> T extract(final Callable<T> extraction) throws Exception {
+        if (watchdog == null) {
+            return extraction.call();
+        }
+        final Thread thread = Thread.currentThread();
+        final AtomicInteger state = new AtomicInteger(RUNNING);
+        final ScheduledFuture<?> timer = watchdog.schedule(() -> {
+            if (state.compareAndSet(RUNNING, TIMED_OUT)) {
+                thread.interrupt();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            final T result = extraction.call();
+            if (state.compareAndSet(RUNNING, DONE)) {
+                return result;
+            }
+        } catch (final Exception e) {
+            if (state.compareAndSet(RUNNING, DONE)) {
+                throw e;
+            }
+        } finally {
+            timer.cancel(false);
+        }
+        // clear the interrupt of the watchdog
+        Thread.interrupted();
+        throw new ExtractionTimeoutException("The extraction did not finish in " + timeoutMillis + "ms.");
+    }
+
+    /**
+     * Returns the number of extractions waiting for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueSize() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Stops accepting extractions and waits for the queued ones to finish.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all extractions finished
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (executor == null) {
+            return true;
+        }
+        executor.shutdown();
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * Thrown when an extraction does not finish in time.
+     */
+    public static class ExtractionTimeoutException extends SlackDataStoreException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates an exception.
+         *
+         * @param message the message
+         */
+        public ExtractionTimeoutException(final String message) {
+            super(message);
+        }
+    }
+}
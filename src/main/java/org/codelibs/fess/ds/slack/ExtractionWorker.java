@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.apache.tika.Tika;
+import org.apache.tika.metadata.Metadata;
+
+/**
+ * Main class of an extraction worker process started by {@link ExtractionWorkerPool}. The worker
+ * reads one request per line from its standard input, a MIME type, an input file, an output file
+ * and the maximum length of the text in bytes (0 for no limit) separated by tabs, extracts the text
+ * of the input file with Tika into the output file, truncated to the maximum length, and answers
+ * {@link #OK} or {@link #ERROR_PREFIX} followed by the error on its standard output. Anything else
+ * written to the standard output, such as by parsers, goes to the standard error. The worker runs
+ * outside of the Fess container, so it extracts with the defaults of a plain {@link Tika} rather
+ * than the extractor and the extractor settings configured in Fess.
+ */
+public final class ExtractionWorker {
+
+    /** Response to a request whose text was extracted. */
+    public static final String OK = "OK";
+
+    /** Prefix of the response to a request that failed. */
+    public static final String ERROR_PREFIX = "ERROR ";
+
+    private ExtractionWorker() {
+    }
+
+    /**
+     * Serves extraction requests until the standard input is closed.
+     *
+     * @param args not used
+     * @throws IOException if the standard input cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        final PrintStream out = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        final Tika tika = new Tika();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final String[] values = line.split("\t", 4);
+            if (values.length < 3) {
+                out.println(ERROR_PREFIX + "Invalid request: " + line);
+                continue;
+            }
+            try (InputStream in = Files.newInputStream(Paths.get(values[1]))) {
+                final Metadata metadata = new Metadata();
+                if (!values[0].isEmpty()) {
+                    metadata.set(Metadata.CONTENT_TYPE, values[0]);
+                }
+                final long maxLength = values.length > 3 ? Long.parseLong(values[3].trim()) : 0L;
+                // a character takes at least one byte, so the parser stops at the maximum length in characters
+                final String text = tika.parseToString(in, metadata, maxLength > 0L ? (int) Math.min(maxLength, Integer.MAX_VALUE) : -1);
+                Files.write(Paths.get(values[2]), truncate(text.getBytes(StandardCharsets.UTF_8), maxLength));
+                out.println(OK);
+            } catch (final Exception | StackOverflowError e) {
+                out.println(ERROR_PREFIX + toSingleLine(e.getClass().getName() + ": " + e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Truncates UTF-8 text to a maximum number of bytes without cutting a character.
+     *
+     * @param bytes the UTF-8 text
+     * @param maxLength the maximum number of bytes, or 0 for no limit
+     * @return the text, or its truncated copy
+     */
+    static byte[] truncate(final byte[] bytes, final long maxLength) {
+        if (maxLength <= 0L || bytes.length <= maxLength) {
+            return bytes;
+        }
+        int length = (int) maxLength;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Replaces the line and field separators of a value, so that it fits on a line of the protocol.
+     *
+     * @param value the value
+     * @return the value on a single line
+     */
+    static String toSingleLine(final String value) {
+        return value.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+    }
+}
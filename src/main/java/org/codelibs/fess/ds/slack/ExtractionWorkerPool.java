@@ -0,0 +1,344 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.tika.Tika;
+import org.codelibs.core.exception.InterruptedRuntimeException;
+
+/**
+ * Extracts file texts in child JVM processes running {@link ExtractionWorker}, so that a file
+ * making the parser spin or exhaust its heap only costs a worker process, not the crawl. Each job
+ * is limited in time; a worker that runs out of time is killed, and a worker that exited, such as
+ * on an out of memory error, is restarted for the next job. Workers are also restarted after a
+ * number of jobs to release what the parsers leak. The extracted text is limited in length, both
+ * when the worker writes it and when it is read back, so that a huge text cannot exhaust the heap
+ * of the crawler either. The workers extract with plain Tika defaults, not with the extractor
+ * configured in Fess.
+ */
+public class ExtractionWorkerPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ExtractionWorkerPool.class);
+
+    /** Command line starting a worker process. */
+    protected final List<String> command;
+
+    /** Maximum time in milliseconds of a job, or 0 for no limit. */
+    protected final long timeoutMillis;
+
+    /** Number of jobs after which a worker is restarted, or 0 for no limit. */
+    protected final int maxJobs;
+
+    /** Maximum length in bytes of an extracted text, or 0 for no limit. */
+    protected final long maxLength;
+
+    /** Directory of the output files, or null for the default temporary directory. */
+    protected final Path workDir;
+
+    /** Workers waiting for a job. */
+    protected final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+
+    /** All workers. */
+    protected final List<Worker> workers = new ArrayList<>();
+
+    /** Kills the workers that run out of time, or null. */
+    protected final ScheduledExecutorService watchdog;
+
+    /** Number of worker processes started after a kill, an exit or the job limit. */
+    protected final AtomicLong restartCount = new AtomicLong();
+
+    /** Whether the pool is closed. */
+    protected volatile boolean closed;
+
+    /**
+     * Creates a pool. Worker processes are started on their first job.
+     *
+     * @param command the command line starting a worker process
+     * @param size the number of worker processes
+     * @param timeoutMillis the maximum time of a job, or 0 for no limit
+     * @param maxJobs the number of jobs after which a worker is restarted, or 0 for no limit
+     * @param maxLength the maximum length in bytes of an extracted text, which is truncated beyond it, or 0 for no limit
+     * @param workDir the directory of the output files, or null for the default temporary directory
+     */
+    public ExtractionWorkerPool(final List<String> command, final int size, final long timeoutMillis, final int maxJobs,
+            final long maxLength, final Path workDir) {
+        this.command = new ArrayList<>(command);
+        this.timeoutMillis = Math.max(0L, timeoutMillis);
+        this.maxJobs = Math.max(0, maxJobs);
+        this.maxLength = Math.max(0L, maxLength);
+        this.workDir = workDir;
+        for (int i = 0; i < Math.max(1, size); i++) {
+            final Worker worker = new Worker();
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+        if (this.timeoutMillis > 0L) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "SlackExtractionWorkerWatchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            watchdog = null;
+        }
+    }
+
+    /**
+     * Returns the classpath of the worker processes: the location of this data store and the
+     * directory of the Tika libraries, which contains the parsers.
+     *
+     * @return the classpath
+     */
+    public static String getDefaultClasspath() {
+        final Set<String> entries = new LinkedHashSet<>();
+        addClasspathEntry(entries, ExtractionWorker.class);
+        addClasspathEntry(entries, Tika.class);
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void addClasspathEntry(final Set<String> entries, final Class<?> clazz) {
+        final CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            return;
+        }
+        try {
+            final Path path = Paths.get(codeSource.getLocation().toURI());
+            if (Files.isDirectory(path)) {
+                entries.add(path.toString());
+            } else if (path.getParent() != null) {
+                entries.add(path.getParent().resolve("*").toString());
+            }
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            logger.warn("Failed to get the location of {}", clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Extracts the text of a file in a worker process, waiting for an idle worker.
+     *
+     * @param input the file
+     * @param mimeType the MIME type of the file, or null
+     * @return the text
+     * @throws IOException if the worker cannot be started or the files cannot be accessed
+     * @throws ExtractionPool.ExtractionTimeoutException if the job does not finish in time
+     * @throws SlackDataStoreException if the extraction fails or the worker exits
+     */
+    public String extract(final Path input, final String mimeType) throws IOException {
+        if (closed) {
+            throw new SlackDataStoreException("The extraction worker pool is closed.");
+        }
+        final Worker worker;
+        try {
+            worker = idleWorkers.take();
+        } catch (final InterruptedException e) {
+            throw new InterruptedRuntimeException(e);
+        }
+        try {
+            return worker.extract(input, mimeType);
+        } finally {
+            if (closed) {
+                worker.stop();
+            }
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Returns the number of worker processes started after a kill, an exit or the job limit.
+     *
+     * @return the number of restarts
+     */
+    public long getRestartCount() {
+        return restartCount.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+        workers.forEach(Worker::stop);
+        if (restartCount.get() > 0L) {
+            logger.info("Restarted extraction workers {} times.", restartCount.get());
+        }
+    }
+
+    /**
+     * A worker process and the number of jobs it ran.
+     */
+    protected class Worker {
+
+        /** The process, or null if not started; guarded by this. */
+        protected Process process;
+
+        /** Writes the requests. */
+        protected BufferedWriter writer;
+
+        /** Reads the responses. */
+        protected BufferedReader reader;
+
+        /** Number of jobs run by the process. */
+        protected int jobs;
+
+        /** Whether a process was started before. */
+        protected boolean started;
+
+        /**
+         * Runs a job, starting the process if needed.
+         *
+         * @param input the file
+         * @param mimeType the MIME type of the file, or null
+         * @return the text
+         * @throws IOException if the process cannot be started or the files cannot be accessed
+         */
+        protected String extract(final Path input, final String mimeType) throws IOException {
+            final Process current = ensureStarted();
+            final Path output = workDir != null ? Files.createTempFile(workDir, "slack-extract-", ".txt")
+                    : Files.createTempFile("slack-extract-", ".txt");
+            final AtomicBoolean timedOut = new AtomicBoolean();
+            final ScheduledFuture<?> timer = watchdog != null ? watchdog.schedule(() -> {
+                timedOut.set(true);
+                current.destroyForcibly();
+            }, timeoutMillis, TimeUnit.MILLISECONDS) : null;
+            try {
+                final String response;
+                try {
+                    writer.write(ExtractionWorker.toSingleLine(mimeType != null ? mimeType : "") + '\t' + input.toAbsolutePath() + '\t'
+                            + output.toAbsolutePath() + '\t' + maxLength + '\n');
+                    writer.flush();
+                    response = reader.readLine();
+                } catch (final IOException e) {
+                    throw workerFailure(timedOut.get(), e);
+                }
+                if (response == null) {
+                    throw workerFailure(timedOut.get(), null);
+                }
+                if (!ExtractionWorker.OK.equals(response)) {
+                    final String error = response.startsWith(ExtractionWorker.ERROR_PREFIX)
+                            ? response.substring(ExtractionWorker.ERROR_PREFIX.length()) : response;
+                    throw new SlackDataStoreException("The extraction worker failed: " + error);
+                }
+                final String text = readText(output);
+                jobs++;
+                if (maxJobs > 0 && jobs >= maxJobs) {
+                    stop();
+                }
+                return text;
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                Files.deleteIfExists(output);
+            }
+        }
+
+        // reads one byte over the limit to tell a text of exactly maxLength bytes from a longer one
+        private String readText(final Path output) throws IOException {
+            if (maxLength <= 0L) {
+                return Files.readString(output, StandardCharsets.UTF_8);
+            }
+            try (InputStream in = Files.newInputStream(output)) {
+                final byte[] bytes = in.readNBytes((int) Math.min(maxLength + 1L, Integer.MAX_VALUE - 8L));
+                return new String(ExtractionWorker.truncate(bytes, maxLength), StandardCharsets.UTF_8);
+            }
+        }
+
+        private RuntimeException workerFailure(final boolean timedOut, final IOException cause) {
+            final Integer exitCode = stop();
+            if (timedOut) {
+                return new ExtractionPool.ExtractionTimeoutException("The extraction worker did not finish in " + timeoutMillis + "ms.");
+            }
+            return new SlackDataStoreException("The extraction worker exited with code " + exitCode + ".", cause);
+        }
+
+        private synchronized Process ensureStarted() throws IOException {
+            if (process != null && process.isAlive()) {
+                return process;
+            }
+            stop();
+            if (started) {
+                restartCount.incrementAndGet();
+            }
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            started = true;
+            writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            jobs = 0;
+            return process;
+        }
+
+        /**
+         * Stops the process, if any.
+         *
+         * @return the exit code of the process, or null if there is no process or it did not exit in time
+         */
+        protected synchronized Integer stop() {
+            if (process == null) {
+                return null;
+            }
+            final Process stopped = process;
+            process = null;
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                // the process has exited
+            }
+            try {
+                if (!stopped.waitFor(1, TimeUnit.SECONDS)) {
+                    stopped.destroyForcibly();
+                    stopped.waitFor(5, TimeUnit.SECONDS);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped.destroyForcibly();
+            }
+            try {
+                reader.close();
+            } catch (final IOException e) {
+                // the process has exited
+            }
+            return stopped.isAlive() ? null : stopped.exitValue();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collects the documents that failed to be crawled. Failures are counted by error class and channel,
+ * and only the first failure of each error class is logged with its stack trace, so that a Slack
+ * outage does not turn into one log entry per document. The failure URLs are written by the crawl
+ * thread that records them, one by one or, with a batch size over 1, in batches written by the thread
+ * that fills the batch; the last batch is written on close. Batches defer the writes but still write
+ * each URL; an optional maximum number per crawl bounds the writes. A summary per error class is
+ * logged on close.
+ */
+public class FailureAggregator implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(FailureAggregator.class);
+
+    /** Channel name used for failures outside of a channel. */
+    protected static final String NO_CHANNEL = "-";
+
+    /** Writes a failure URL, such as to the FailureUrlService. */
+    protected final FailureWriter writer;
+
+    /** Number of failure URLs written together. */
+    protected final int batchSize;
+
+    /** Maximum number of failure URLs written in the crawl, or a negative value for no limit. */
+    protected final long maxFailureUrls;
+
+    /** Summaries keyed by error name. */
+    protected final Map<String, ErrorSummary> summaries = new ConcurrentHashMap<>();
+
+    /** Number of failure URLs accepted for writing. */
+    protected final AtomicLong acceptedCount = new AtomicLong();
+
+    /** Number of failure URLs not written because of the limit. */
+    protected final AtomicLong droppedCount = new AtomicLong();
+
+    /** Failures waiting to be written; guarded by this. */
+    protected List<Failure> buffer = new ArrayList<>();
+
+    /**
+     * Creates an aggregator.
+     *
+     * @param writer the writer of failure URLs
+     * @param batchSize the number of failure URLs written together
+     * @param maxFailureUrls the maximum number of failure URLs written in the crawl, or a negative value for no limit
+     */
+    public FailureAggregator(final FailureWriter writer, final int batchSize, final long maxFailureUrls) {
+        this.writer = writer;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxFailureUrls = maxFailureUrls;
+    }
+
+    /**
+     * Records a failed document.
+     *
+     * @param channelName the name of the channel of the document, or null
+     * @param errorName the name of the error class
+     * @param url the URL of the document
+     * @param t the failure
+     */
+    public void record(final String channelName, final String errorName, final String url, final Throwable t) {
+        final ErrorSummary summary = summaries.computeIfAbsent(errorName, ErrorSummary::new);
+        if (summary.add(channelName != null ? channelName : NO_CHANNEL, url, t)) {
+            logger.warn("Failed to crawl {} with {}. Further failures are summarized at the end of the crawl.", url, errorName, t);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("Failed to crawl {} with {}.", url, errorName, t);
+        }
+
+        if (maxFailureUrls >= 0L && acceptedCount.incrementAndGet() > maxFailureUrls) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        final List<Failure> batch;
+        synchronized (this) {
+            buffer.add(new Failure(errorName, url, t));
+            batch = buffer.size() >= batchSize ? drain() : null;
+        }
+        if (batch != null) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Writes the buffered failure URLs.
+     */
+    public void flush() {
+        final List<Failure> batch;
+        synchronized (this) {
+            batch = buffer.isEmpty() ? null : drain();
+        }
+        if (batch != null) {
+            write(batch);
+        }
+    }
+
+    /**
+     * Returns the number of failures of an error class.
+     *
+     * @param errorName the name of the error class
+     * @return the number of failures
+     */
+    public long getFailureCount(final String errorName) {
+        final ErrorSummary summary = summaries.get(errorName);
+        return summary != null ? summary.count.sum() : 0L;
+    }
+
+    /**
+     * Returns the number of failure URLs not written because of the limit.
+     *
+     * @return the number of dropped failure URLs
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        summaries.values().forEach(summary -> {
+            logger.warn("{} documents failed with {} in channels {}. The first failure was {}: {}", summary.count.sum(), summary.errorName,
+                    summary.getChannelCounts(), summary.firstUrl, summary.firstMessage);
+        });
+        if (droppedCount.get() > 0L) {
+            logger.warn("Did not store {} failure URLs over the limit of {} per crawl.", droppedCount.get(), maxFailureUrls);
+        }
+    }
+
+    private List<Failure> drain() {
+        final List<Failure> batch = buffer;
+        buffer = new ArrayList<>(batchSize);
+        return batch;
+    }
+
+    /**
+     * Writes a batch of failure URLs. A failure URL that cannot be written is logged and skipped.
+     *
+     * @param batch the failures
+     */
+    protected void write(final List<Failure> batch) {
+        for (final Failure failure : batch) {
+            try {
+                writer.store(failure.errorName(), failure.url(), failure.cause());
+            } catch (final Exception e) {
+                logger.warn("Failed to store the failure URL: {}", failure.url(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes a failure URL.
+     */
+    @FunctionalInterface
+    public interface FailureWriter {
+        /**
+         * Writes a failure URL.
+         *
+         * @param errorName the name of the error class
+         * @param url the URL
+         * @param t the failure
+         */
+        void store(String errorName, String url, Throwable t);
+    }
+
+    /**
+     * A failure waiting to be written.
+     *
+     * @param errorName the name of the error class
+     * @param url the URL
+     * @param cause the failure
+     */
+    protected record Failure(String errorName, String url, Throwable cause) {
+    }
+
+    /**
+     * The failures of an error class.
+     */
+    protected static class ErrorSummary {
+
+        /** The name of the error class. */
+        protected final String errorName;
+
+        /** Number of failures. */
+        protected final LongAdder count = new LongAdder();
+
+        /** Number of failures keyed by channel name. */
+        protected final Map<String, LongAdder> channelCounts = new ConcurrentHashMap<>();
+
+        /** URL of the first failure; guarded by this. */
+        protected String firstUrl;
+
+        /** Message of the first failure; guarded by this. */
+        protected String firstMessage;
+
+        /**
+         * Creates the summary of an error class.
+         *
+         * @param errorName the name of the error class
+         */
+        protected ErrorSummary(final String errorName) {
+            this.errorName = errorName;
+        }
+
+        /**
+         * Counts a failure.
+         *
+         * @param channelName the channel name
+         * @param url the URL
+         * @param t the failure
+         * @return true if this is the first failure of the error class
+         */
+        protected boolean add(final String channelName, final String url, final Throwable t) {
+            count.increment();
+            channelCounts.computeIfAbsent(channelName, k -> new LongAdder()).increment();
+            synchronized (this) {
+                if (firstUrl != null) {
+                    return false;
+                }
+                firstUrl = url != null ? url : "";
+                firstMessage = t != null ? t.getMessage() : null;
+                return true;
+            }
+        }
+
+        /**
+         * Returns the number of failures per channel, sorted by channel name.
+         *
+         * @return the number of failures keyed by channel name
+         */
+        protected Map<String, Long> getChannelCounts() {
+            final Map<String, Long> counts = new TreeMap<>();
+            channelCounts.forEach((name, channelCount) -> counts.put(name, channelCount.sum()));
+            return counts;
+        }
+    }
+}
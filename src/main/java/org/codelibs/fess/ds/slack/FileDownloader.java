@@ -0,0 +1,521 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.fess.crawler.exception.MaxLengthExceededException;
+
+/**
+ * Downloads file contents with a hard limit on the number of bytes read, whatever size the file
+ * metadata claims. Contents up to a threshold are kept in memory, in a buffer sized from the file
+ * size when it is known and in a pooled buffer of the threshold otherwise; larger contents are
+ * spilled to a temporary file that is read back through a memory mapping. Read timeouts are left to
+ * the stream, such as the read timeout of the HTTP connection.
+ */
+public class FileDownloader {
+
+    private static final Logger logger = LogManager.getLogger(FileDownloader.class);
+
+    /** Size of the memory buffers, and the largest content kept in memory. */
+    protected final int memoryThreshold;
+
+    /** Directory of the spilled contents, or null for the default temporary directory. */
+    protected final Path spillDir;
+
+    /** Memory buffers released by closed contents. */
+    protected final BlockingQueue<byte[]> bufferPool;
+
+    /**
+     * Creates a downloader.
+     *
+     * @param memoryThreshold the largest content in bytes kept in memory
+     * @param spillDir the directory of the spilled contents, or null for the default temporary directory
+     * @param poolSize the number of memory buffers kept for reuse
+     */
+    public FileDownloader(final int memoryThreshold, final Path spillDir, final int poolSize) {
+        this.memoryThreshold = Math.max(1, memoryThreshold);
+        this.spillDir = spillDir;
+        this.bufferPool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Reads a stream to its end.
+     *
+     * @param in the stream, which is not closed
+     * @param maxBytes the maximum number of bytes to read
+     * @param url the URL of the content, for error messages
+     * @return the content, which must be closed
+     * @throws IOException if the stream cannot be read or the content cannot be spilled
+     * @throws MaxLengthExceededException if the stream has more than maxBytes bytes
+     */
+    public Content download(final InputStream in, final long maxBytes, final String url) throws IOException {
+        try (Download download = begin(maxBytes, url)) {
+            download.append(in);
+            return download.finish();
+        }
+    }
+
+    /**
+     * Starts a download whose content can be read from several streams, such as when a download
+     * is resumed after a transient failure.
+     *
+     * @param maxBytes the maximum number of bytes to read
+     * @param url the URL of the content, for error messages
+     * @return the download, which must be closed
+     */
+    public Download begin(final long maxBytes, final String url) {
+        return begin(maxBytes, url, -1L);
+    }
+
+    /**
+     * Starts a download of a content whose size is expected, so that a small content does not take
+     * a memory buffer of the full threshold.
+     *
+     * @param maxBytes the maximum number of bytes to read
+     * @param url the URL of the content, for error messages
+     * @param sizeHint the expected number of bytes, or a negative value if unknown
+     * @return the download, which must be closed
+     */
+    public Download begin(final long maxBytes, final String url, final long sizeHint) {
+        return new Download(maxBytes, url, sizeHint);
+    }
+
+    /**
+     * Creates an empty temporary file in the spill directory.
+     *
+     * @return the file, which the caller deletes
+     * @throws IOException if the file cannot be created
+     */
+    public Path createTempFile() throws IOException {
+        return spillDir != null ? Files.createTempFile(spillDir, "slack-download-", ".tmp")
+                : Files.createTempFile("slack-download-", ".tmp");
+    }
+
+    /**
+     * A download in progress. Bytes are appended in memory up to the memory threshold, and to a
+     * spilled file beyond it, until the download is finished into a content or closed.
+     */
+    public class Download implements Closeable {
+
+        /** Maximum number of bytes. */
+        protected final long maxBytes;
+
+        /** URL of the content, for error messages. */
+        protected final String url;
+
+        /** Time the download started. */
+        protected final long startNanos = System.nanoTime();
+
+        /** The memory buffer, or null once handed over or released. */
+        protected byte[] buffer;
+
+        /** Number of bytes read. */
+        protected long length;
+
+        /** The spilled file, or null while the bytes are in memory or once handed over. */
+        protected Path path;
+
+        /** Writes the spilled file, or null. */
+        protected OutputStream out;
+
+        /**
+         * Creates a download.
+         *
+         * @param maxBytes the maximum number of bytes
+         * @param url the URL of the content
+         * @param sizeHint the expected number of bytes, or a negative value if unknown
+         */
+        protected Download(final long maxBytes, final String url, final long sizeHint) {
+            this.maxBytes = maxBytes;
+            this.url = url;
+            buffer = acquireBuffer(sizeHint);
+        }
+
+        /**
+         * Returns the number of bytes read so far, from which a resumed download continues.
+         *
+         * @return the length
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Appends a stream to its end. If the stream fails, the bytes read before the failure are kept.
+         *
+         * @param in the stream, which is not closed
+         * @throws IOException if the stream cannot be read
+         * @throws SpillException if the content cannot be spilled, after which the download cannot be resumed
+         * @throws MaxLengthExceededException if the content has more than maxBytes bytes
+         */
+        public void append(final InputStream in) throws IOException {
+            if (out == null) {
+                while (length < memoryThreshold) {
+                    if (length == buffer.length) {
+                        // the content is larger than its expected size
+                        buffer = Arrays.copyOf(buffer, (int) Math.min(buffer.length * 2L, memoryThreshold));
+                    }
+                    final int n = in.read(buffer, (int) length, (int) Math.min(buffer.length - length, remaining(maxBytes, length)));
+                    if (n < 0) {
+                        return;
+                    }
+                    length += n;
+                    checkLength(length, maxBytes, url);
+                }
+                spill((int) length);
+            }
+            int n;
+            while ((n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining(maxBytes, length)))) >= 0) {
+                spill(n);
+                length += n;
+                checkLength(length, maxBytes, url);
+            }
+        }
+
+        private void spill(final int len) throws SpillException {
+            try {
+                if (out == null) {
+                    path = createTempFile();
+                    out = Files.newOutputStream(path);
+                }
+                out.write(buffer, 0, len);
+            } catch (final IOException e) {
+                throw new SpillException("Failed to spill the content of " + url + " to " + path, e);
+            }
+        }
+
+        /**
+         * Finishes the download.
+         *
+         * @return the content, which must be closed
+         * @throws IOException if the spilled file cannot be written
+         */
+        public Content finish() throws IOException {
+            final long elapsedNanos = System.nanoTime() - startNanos;
+            if (out == null) {
+                final Content content = new MemoryContent(buffer, (int) length, elapsedNanos);
+                buffer = null;
+                return content;
+            }
+            out.close();
+            out = null;
+            final Content content = new FileContent(path, length, elapsedNanos);
+            path = null;
+            return content;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (buffer != null) {
+                releaseBuffer(buffer);
+                buffer = null;
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            if (path != null) {
+                Files.deleteIfExists(path);
+                path = null;
+            }
+        }
+    }
+
+    // reads one byte over the limit to tell a content of exactly maxBytes from a longer one
+    private static long remaining(final long maxBytes, final long length) {
+        final long remaining = maxBytes - length;
+        return remaining >= Integer.MAX_VALUE ? Integer.MAX_VALUE : remaining + 1L;
+    }
+
+    private static void checkLength(final long length, final long maxBytes, final String url) {
+        if (length > maxBytes) {
+            throw new MaxLengthExceededException("The content length is over " + maxBytes + " byte. The url is " + url);
+        }
+    }
+
+    /**
+     * Allocates a memory buffer one byte over the expected size, which tells the end of the content
+     * without growing the buffer, or takes a buffer of the threshold from the pool.
+     *
+     * @param sizeHint the expected number of bytes, or a negative value if unknown
+     * @return the buffer
+     */
+    protected byte[] acquireBuffer(final long sizeHint) {
+        if (sizeHint >= 0L && sizeHint < memoryThreshold - 1L) {
+            return new byte[(int) sizeHint + 1];
+        }
+        final byte[] buffer = bufferPool.poll();
+        return buffer != null ? buffer : new byte[memoryThreshold];
+    }
+
+    /**
+     * Returns a memory buffer of the threshold to the pool, or drops it if the pool is full or the
+     * buffer is smaller.
+     *
+     * @param buffer the buffer
+     */
+    protected void releaseBuffer(final byte[] buffer) {
+        if (buffer.length == memoryThreshold) {
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * A downloaded content.
+     */
+    public abstract static class Content implements Closeable {
+
+        /** Number of bytes. */
+        protected final long size;
+
+        /** Time the download took. */
+        protected final long elapsedNanos;
+
+        /**
+         * Creates a content.
+         *
+         * @param size the number of bytes
+         * @param elapsedNanos the time the download took
+         */
+        protected Content(final long size, final long elapsedNanos) {
+            this.size = size;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of bytes.
+         *
+         * @return the size
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the time the download took.
+         *
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * Returns the download rate.
+         *
+         * @return the bytes per second
+         */
+        public long getBytesPerSecond() {
+            return elapsedNanos > 0L ? (long) (size * 1e9 / elapsedNanos) : size;
+        }
+
+        /**
+         * Returns whether the content was spilled to a file.
+         *
+         * @return true if the content is in a file
+         */
+        public abstract boolean isSpilled();
+
+        /**
+         * Returns the file holding the content.
+         *
+         * @return the file, or null if the content is in memory
+         */
+        public Path getPath() {
+            return null;
+        }
+
+        /**
+         * Opens a stream over the content.
+         *
+         * @return the stream
+         * @throws IOException if the content cannot be read
+         */
+        public abstract InputStream getInputStream() throws IOException;
+    }
+
+    /**
+     * A content in a pooled memory buffer.
+     */
+    protected class MemoryContent extends Content {
+
+        /** The buffer, or null once closed. */
+        protected byte[] buffer;
+
+        /**
+         * Creates a content in memory.
+         *
+         * @param buffer the buffer
+         * @param length the number of bytes in the buffer
+         * @param elapsedNanos the time the download took
+         */
+        protected MemoryContent(final byte[] buffer, final int length, final long elapsedNanos) {
+            super(length, elapsedNanos);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public boolean isSpilled() {
+            return false;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(buffer, 0, (int) size);
+        }
+
+        @Override
+        public void close() {
+            if (buffer != null) {
+                releaseBuffer(buffer);
+                buffer = null;
+            }
+        }
+    }
+
+    /**
+     * A content spilled to a temporary file, which is deleted on close.
+     */
+    protected static class FileContent extends Content {
+
+        /** The file. */
+        protected final Path path;
+
+        /**
+         * Creates a content in a file.
+         *
+         * @param path the file
+         * @param size the size of the file
+         * @param elapsedNanos the time the download took
+         */
+        protected FileContent(final Path path, final long size, final long elapsedNanos) {
+            super(size, elapsedNanos);
+            this.path = path;
+        }
+
+        @Override
+        public boolean isSpilled() {
+            return true;
+        }
+
+        @Override
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                return Files.newInputStream(path);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (final IOException e) {
+                logger.warn("Failed to delete {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * An input stream over a byte buffer.
+     */
+    protected static class ByteBufferInputStream extends InputStream {
+
+        /** The buffer. */
+        protected final ByteBuffer buffer;
+
+        /**
+         * Creates a stream over the remaining bytes of a buffer.
+         *
+         * @param buffer the buffer
+         */
+        protected ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int skipped = (int) Math.max(0L, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Thrown when a content cannot be written to its spilled file. Unlike a failure of the stream,
+     * this is a local error that retrying the download does not fix.
+     */
+    public static class SpillException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates an exception.
+         *
+         * @param message the message
+         * @param cause the cause
+         */
+        public SpillException(final String message, final Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.codelibs.core.lang.StringUtil;
+import org.codelibs.fess.ds.slack.api.type.File;
+
+/**
+ * Decides from the metadata of a file alone whether it is worth downloading, before any bandwidth
+ * is spent on it: its Slack file type or pretty type, its name extension, its size and whether it
+ * is hosted by Slack. The lists are compared as lower-case strings in hash sets, so nothing is
+ * compiled or evaluated per file.
+ */
+public class FilePrefilter {
+
+    /** Mode of files hosted outside of Slack. */
+    protected static final String EXTERNAL_MODE = "external";
+
+    /** File types and pretty types to crawl, or empty for all. */
+    protected final Set<String> includeFileTypes;
+
+    /** File types and pretty types to skip. */
+    protected final Set<String> excludeFileTypes;
+
+    /** Name extensions to skip. */
+    protected final Set<String> excludeExtensions;
+
+    /** Smallest file size in bytes to crawl. */
+    protected final long minFilesize;
+
+    /** Whether files hosted outside of Slack are skipped. */
+    protected final boolean skipExternal;
+
+    /**
+     * Creates a prefilter.
+     *
+     * @param includeFileTypes the file types or pretty types to crawl, or empty for all
+     * @param excludeFileTypes the file types or pretty types to skip
+     * @param excludeExtensions the name extensions to skip, with or without the leading dot
+     * @param minFilesize the smallest file size in bytes to crawl
+     * @param skipExternal whether files hosted outside of Slack are skipped
+     */
+    public FilePrefilter(final Collection<String> includeFileTypes, final Collection<String> excludeFileTypes,
+            final Collection<String> excludeExtensions, final long minFilesize, final boolean skipExternal) {
+        this.includeFileTypes = normalize(includeFileTypes, false);
+        this.excludeFileTypes = normalize(excludeFileTypes, false);
+        this.excludeExtensions = normalize(excludeExtensions, true);
+        this.minFilesize = minFilesize;
+        this.skipExternal = skipExternal;
+    }
+
+    /**
+     * Checks a file against the prefilter.
+     *
+     * @param file the file
+     * @return the reason the file is skipped, or null if it is crawled
+     */
+    public String reject(final File file) {
+        if (skipExternal && (file.isExternal() || EXTERNAL_MODE.equals(file.getMode()))) {
+            return "hosted outside of Slack";
+        }
+        final String filetype = toKey(file.getFiletype());
+        final String prettyType = toKey(file.getPrettyType());
+        if (!includeFileTypes.isEmpty() && !includeFileTypes.contains(filetype) && !includeFileTypes.contains(prettyType)) {
+            return "file type " + file.getFiletype() + " is not included";
+        }
+        if (excludeFileTypes.contains(filetype) || excludeFileTypes.contains(prettyType)) {
+            return "file type " + file.getFiletype() + " is excluded";
+        }
+        if (!excludeExtensions.isEmpty()) {
+            final String extension = getExtension(file.getName());
+            if (extension != null && excludeExtensions.contains(extension)) {
+                return "extension " + extension + " is excluded";
+            }
+        }
+        if (file.getSize() != null && file.getSize() < minFilesize) {
+            return "size " + file.getSize() + " is under " + minFilesize;
+        }
+        return null;
+    }
+
+    private static Set<String> normalize(final Collection<String> values, final boolean extension) {
+        final Set<String> set = new HashSet<>();
+        for (final String value : values) {
+            String key = toKey(value);
+            if (extension && key.startsWith(".")) {
+                key = key.substring(1);
+            }
+            if (!key.isEmpty()) {
+                set.add(key);
+            }
+        }
+        return set;
+    }
+
+    private static String toKey(final String value) {
+        return value != null ? value.trim().toLowerCase(Locale.ROOT) : StringUtil.EMPTY;
+    }
+
+    private static String getExtension(final String name) {
+        if (name == null) {
+            return null;
+        }
+        final int index = name.lastIndexOf('.');
+        return index >= 0 && index < name.length() - 1 ? name.substring(index + 1).toLowerCase(Locale.ROOT) : null;
+    }
+}
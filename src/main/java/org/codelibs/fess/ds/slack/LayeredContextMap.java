@@ -0,0 +1,234 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A per-document map layered over a shared base map. Reads fall through to the base map,
+ * while writes and removals are kept in a small overlay, so the base map is never copied
+ * or modified and per-document allocation scales with the entries written rather than
+ * with the size of the base map. Instances are not thread-safe; the base map must not be
+ * modified while layered maps over it are in use.
+ */
+public class LayeredContextMap extends AbstractMap<String, Object> {
+
+    /** Shared entries, never modified through this map. */
+    protected final Map<String, Object> base;
+
+    /** Entries written to this map. */
+    protected final Map<String, Object> overlay = new HashMap<>();
+
+    /** Base keys removed through this map, or null if none. */
+    protected Set<String> removed;
+
+    /**
+     * Creates a map layered over a base map.
+     *
+     * @param base the shared base map
+     */
+    public LayeredContextMap(final Map<String, Object> base) {
+        this.base = base;
+    }
+
+    @Override
+    public Object get(final Object key) {
+        final Object value = overlay.get(key);
+        if (value != null || overlay.containsKey(key)) {
+            return value;
+        }
+        if (removed != null && removed.contains(key)) {
+            return null;
+        }
+        return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return overlay.containsKey(key) || isVisibleInBase(key);
+    }
+
+    @Override
+    public Object put(final String key, final Object value) {
+        final Object old = get(key);
+        if (removed != null) {
+            removed.remove(key);
+        }
+        overlay.put(key, value);
+        return old;
+    }
+
+    @Override
+    public Object remove(final Object key) {
+        final Object old = get(key);
+        overlay.remove(key);
+        if (base.containsKey(key)) {
+            if (removed == null) {
+                removed = new HashSet<>();
+            }
+            removed.add((String) key);
+        }
+        return old;
+    }
+
+    @Override
+    public int size() {
+        int size = overlay.size();
+        for (final String key : base.keySet()) {
+            if (!overlay.containsKey(key) && (removed == null || !removed.contains(key))) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        overlay.clear();
+        if (!base.isEmpty()) {
+            if (removed == null) {
+                removed = new HashSet<>();
+            }
+            removed.addAll(base.keySet());
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new LayeredIterator();
+            }
+
+            @Override
+            public int size() {
+                return LayeredContextMap.this.size();
+            }
+        };
+    }
+
+    private boolean isVisibleInBase(final Object key) {
+        return (removed == null || !removed.contains(key)) && base.containsKey(key);
+    }
+
+    /**
+     * Iterates over the overlay entries, then over the base entries that are not shadowed or removed.
+     * The overlay iterator is only advanced by next, so that remove can always remove the last
+     * overlay entry returned through it, even after hasNext.
+     */
+    protected class LayeredIterator implements Iterator<Entry<String, Object>> {
+
+        private final Iterator<Entry<String, Object>> overlayIterator = overlay.entrySet().iterator();
+
+        private final Iterator<Entry<String, Object>> baseIterator = base.entrySet().iterator();
+
+        private Entry<String, Object> next;
+
+        private Entry<String, Object> current;
+
+        private boolean inOverlay = true;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (inOverlay) {
+                if (overlayIterator.hasNext()) {
+                    return true;
+                }
+                inOverlay = false;
+            }
+            while (baseIterator.hasNext()) {
+                final Entry<String, Object> entry = baseIterator.next();
+                final String key = entry.getKey();
+                if (!overlay.containsKey(key) && (removed == null || !removed.contains(key))) {
+                    next = new BaseEntry(key, entry.getValue());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (inOverlay && overlayIterator.hasNext()) {
+                current = overlayIterator.next();
+                return current;
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = null;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            if (current instanceof BaseEntry) {
+                if (removed == null) {
+                    removed = new HashSet<>();
+                }
+                removed.add(current.getKey());
+            } else {
+                overlayIterator.remove();
+                if (base.containsKey(current.getKey())) {
+                    if (removed == null) {
+                        removed = new HashSet<>();
+                    }
+                    removed.add(current.getKey());
+                }
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * An entry read from the base map; setting its value writes to the overlay.
+     */
+    protected class BaseEntry extends SimpleEntry<String, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates an entry.
+         *
+         * @param key the key
+         * @param value the value
+         */
+        protected BaseEntry(final String key, final Object value) {
+            super(key, value);
+        }
+
+        @Override
+        public Object setValue(final Object value) {
+            overlay.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
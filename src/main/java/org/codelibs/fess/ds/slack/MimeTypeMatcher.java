@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matches MIME types against the supported_mimetypes patterns, compiled once per crawl.
+ * A ".*" pattern matches everything without evaluating anything, patterns without regex
+ * metacharacters are compared as exact strings, "type/*" patterns are compared as prefixes,
+ * and only the remaining patterns are evaluated as regular expressions. Verdicts are
+ * memoized per distinct MIME type.
+ */
+public class MimeTypeMatcher {
+
+    /** Pattern that matches all MIME types. */
+    protected static final String MATCH_ALL = ".*";
+
+    /** Maximum number of memoized verdicts. */
+    protected static final int MAX_CACHE_SIZE = 1000;
+
+    /** Whether all MIME types match. */
+    protected final boolean matchAll;
+
+    /** MIME types matched exactly. */
+    protected final Set<String> exactTypes = new HashSet<>();
+
+    /** Prefixes such as "image/" matched by "image/*" patterns. */
+    protected final List<String> prefixes = new ArrayList<>();
+
+    /** Remaining patterns evaluated as regular expressions. */
+    protected final List<Pattern> patterns = new ArrayList<>();
+
+    /** Memoized verdicts keyed by MIME type. */
+    protected final Map<String, Boolean> verdictCache = new ConcurrentHashMap<>();
+
+    /**
+     * Compiles the supported MIME type patterns.
+     *
+     * @param mimeTypePatterns the patterns from supported_mimetypes
+     */
+    public MimeTypeMatcher(final List<String> mimeTypePatterns) {
+        boolean all = false;
+        for (final String value : mimeTypePatterns) {
+            final String pattern = value.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (MATCH_ALL.equals(pattern)) {
+                all = true;
+            } else if (isLiteral(pattern)) {
+                exactTypes.add(pattern);
+            } else if (pattern.endsWith("/*") && isLiteral(pattern.substring(0, pattern.length() - 2))) {
+                prefixes.add(pattern.substring(0, pattern.length() - 1));
+            } else {
+                patterns.add(Pattern.compile(pattern));
+            }
+        }
+        matchAll = all;
+    }
+
+    /**
+     * Returns whether a MIME type is an indexing target.
+     *
+     * @param mimeType the MIME type, may be null
+     * @return true if the MIME type matches one of the patterns
+     */
+    public boolean matches(final String mimeType) {
+        if (matchAll) {
+            return true;
+        }
+        if (mimeType == null) {
+            return false;
+        }
+        final Boolean verdict = verdictCache.get(mimeType);
+        if (verdict != null) {
+            return verdict;
+        }
+        final boolean result = evaluate(mimeType);
+        if (verdictCache.size() < MAX_CACHE_SIZE) {
+            verdictCache.put(mimeType, result);
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates a MIME type against the compiled patterns.
+     *
+     * @param mimeType the MIME type
+     * @return true if the MIME type matches one of the patterns
+     */
+    protected boolean evaluate(final String mimeType) {
+        if (exactTypes.contains(mimeType)) {
+            return true;
+        }
+        for (final String prefix : prefixes) {
+            if (mimeType.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(mimeType).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a pattern has no regular expression metacharacters.
+     *
+     * @param pattern the pattern
+     * @return true if the pattern matches only itself
+     */
+    protected static boolean isLiteral(final String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("\\[](){}.*+?^$|".indexOf(pattern.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "MimeTypeMatcher [matchAll=" + matchAll + ", exactTypes=" + exactTypes + ", prefixes=" + prefixes + ", patterns=" + patterns
+                + "]";
+    }
+}
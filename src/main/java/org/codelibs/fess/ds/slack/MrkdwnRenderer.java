@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Renders Slack mrkdwn message text as plain text in a single pass. User mentions such as
+ * {@code <@U024BE7LH>} become {@code @name}, channel links such as {@code <#C123|general>} become
+ * {@code #general}, links such as {@code <https://example.com|label>} become their label or URL,
+ * special mentions such as {@code <!here>} become {@code @here}, and the {@code &amp;}, {@code &lt;}
+ * and {@code &gt;} entities are decoded. Text without any of these is returned as is.
+ */
+public class MrkdwnRenderer {
+
+    /** Resolves user IDs to names. */
+    protected final Function<String, String> userResolver;
+
+    /** Resolves channel IDs to names. */
+    protected final Function<String, String> channelResolver;
+
+    /**
+     * Creates a renderer.
+     *
+     * @param userResolver resolves user IDs to names, returning the ID if it cannot be resolved
+     * @param channelResolver resolves channel IDs to names, returning the ID if it cannot be resolved
+     */
+    public MrkdwnRenderer(final Function<String, String> userResolver, final Function<String, String> channelResolver) {
+        this.userResolver = userResolver;
+        this.channelResolver = channelResolver;
+    }
+
+    /**
+     * Renders mrkdwn text as plain text.
+     *
+     * @param text the mrkdwn text, may be null
+     * @return the plain text
+     */
+    public String render(final String text) {
+        if (text == null) {
+            return "";
+        }
+        final int length = text.length();
+        int pos = 0;
+        while (pos < length && text.charAt(pos) != '<' && text.charAt(pos) != '&') {
+            pos++;
+        }
+        if (pos == length) {
+            return text;
+        }
+        final StringBuilder buf = new StringBuilder(length);
+        buf.append(text, 0, pos);
+        while (pos < length) {
+            final char c = text.charAt(pos);
+            if (c == '<') {
+                final int end = text.indexOf('>', pos + 1);
+                if (end < 0) {
+                    appendDecoded(buf, text, pos, length);
+                    break;
+                }
+                appendToken(buf, text, pos + 1, end);
+                pos = end + 1;
+            } else if (c == '&') {
+                pos = appendEntity(buf, text, pos, length);
+            } else {
+                buf.append(c);
+                pos++;
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Renders the content of an angle-bracket token.
+     *
+     * @param buf the output
+     * @param text the text
+     * @param start the index after '&lt;'
+     * @param end the index of '&gt;'
+     */
+    protected void appendToken(final StringBuilder buf, final String text, final int start, final int end) {
+        if (start >= end) {
+            return;
+        }
+        final int bar = indexOf(text, '|', start, end);
+        final int bodyEnd = bar >= 0 ? bar : end;
+        final boolean hasLabel = bar >= 0 && bar + 1 < end;
+        switch (text.charAt(start)) {
+        case '@' -> {
+            buf.append('@');
+            if (hasLabel) {
+                appendDecoded(buf, text, text.charAt(bar + 1) == '@' ? bar + 2 : bar + 1, end);
+            } else {
+                buf.append(resolve(userResolver, text.substring(start + 1, bodyEnd)));
+            }
+        }
+        case '#' -> {
+            buf.append('#');
+            if (hasLabel) {
+                appendDecoded(buf, text, bar + 1, end);
+            } else {
+                buf.append(resolve(channelResolver, text.substring(start + 1, bodyEnd)));
+            }
+        }
+        case '!' -> {
+            final String name = text.substring(start + 1, bodyEnd);
+            if ("here".equals(name) || "channel".equals(name) || "everyone".equals(name)) {
+                buf.append('@').append(name);
+            } else if (hasLabel) {
+                appendDecoded(buf, text, bar + 1, end);
+            }
+        }
+        default -> {
+            if (hasLabel) {
+                appendDecoded(buf, text, bar + 1, end);
+            } else {
+                appendDecoded(buf, text, text.startsWith("mailto:", start) ? start + 7 : start, bodyEnd);
+            }
+        }
+        }
+    }
+
+    private static int indexOf(final String text, final char c, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String resolve(final Function<String, String> resolver, final String id) {
+        if (resolver == null) {
+            return id;
+        }
+        final String name = resolver.apply(id);
+        return name != null ? name : id;
+    }
+
+    /**
+     * Appends a range of text, decoding entities.
+     *
+     * @param buf the output
+     * @param text the text
+     * @param start the first index
+     * @param end the index after the last character
+     */
+    protected static void appendDecoded(final StringBuilder buf, final String text, final int start, final int end) {
+        int pos = start;
+        while (pos < end) {
+            final char c = text.charAt(pos);
+            if (c == '&') {
+                pos = appendEntity(buf, text, pos, end);
+            } else {
+                buf.append(c);
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Appends the entity at a position, or the '&amp;' itself if it does not start an entity.
+     *
+     * @param buf the output
+     * @param text the text
+     * @param pos the index of '&amp;'
+     * @param end the index after the last character that may be read
+     * @return the index after the entity
+     */
+    protected static int appendEntity(final StringBuilder buf, final String text, final int pos, final int end) {
+        if (text.startsWith("&amp;", pos) && pos + 5 <= end) {
+            buf.append('&');
+            return pos + 5;
+        }
+        if (text.startsWith("&lt;", pos) && pos + 4 <= end) {
+            buf.append('<');
+            return pos + 4;
+        }
+        if (text.startsWith("&gt;", pos) && pos + 4 <= end) {
+            buf.append('>');
+            return pos + 4;
+        }
+        buf.append('&');
+        return pos + 1;
+    }
+
+    /**
+     * Collects the user and channel IDs that the rendering of a text has to resolve.
+     *
+     * @param text the mrkdwn text, may be null
+     * @param userIds receives the user IDs of mentions without a label
+     * @param channelIds receives the channel IDs of channel links without a label
+     */
+    public static void collectIds(final String text, final Set<String> userIds, final Set<String> channelIds) {
+        if (text == null) {
+            return;
+        }
+        int pos = text.indexOf('<');
+        while (pos >= 0 && pos + 1 < text.length()) {
+            final int end = text.indexOf('>', pos + 1);
+            if (end < 0) {
+                return;
+            }
+            final char type = text.charAt(pos + 1);
+            if ((type == '@' || type == '#') && indexOf(text, '|', pos + 1, end) < 0) {
+                final String id = text.substring(pos + 2, end);
+                if (!id.isEmpty()) {
+                    (type == '@' ? userIds : channelIds).add(id);
+                }
+            }
+            pos = text.indexOf('<', end + 1);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.lang.StringUtil;
+
+/**
+ * Synthesizes message permalinks locally from a URL template learned per channel.
+ * The first message of a channel (and the first thread reply of a channel) is resolved
+ * through chat.getPermalink; the returned URL is turned into a template in which the
+ * channel ID, the message timestamp and the thread timestamp are placeholders.
+ * All following messages of that channel are built from the template without an API call.
+ * If a sample cannot be turned into a template, every message of that channel falls back
+ * to chat.getPermalink. A sample that cannot be fetched is not cached, so the next message of
+ * the channel samples again. Samples are fetched outside of the template map, so a slow or
+ * rate-limited call does not block the other channels; concurrent first messages of a channel
+ * may each fetch a sample.
+ */
+public class PermalinkResolver {
+
+    private static final Logger logger = LogManager.getLogger(PermalinkResolver.class);
+
+    /** Query parameter used by Slack for thread reply permalinks. */
+    protected static final String THREAD_TS_PARAM = "thread_ts=";
+
+    /** Marker for channels whose permalinks could not be turned into a template. */
+    protected static final Template UNRESOLVABLE = new Template(List.of());
+
+    /** Fetches a permalink from Slack for a channel ID and message timestamp. */
+    protected final BiFunction<String, String, String> sampler;
+
+    /** Learned templates keyed by channel ID and message kind. */
+    protected final Map<String, Template> templateMap = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new resolver.
+     *
+     * @param sampler the function that fetches a permalink for a channel ID and message timestamp
+     */
+    public PermalinkResolver(final BiFunction<String, String, String> sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * Returns the permalink of a message, synthesizing it from the learned template of the channel.
+     *
+     * @param channelId the channel ID
+     * @param ts the message timestamp
+     * @param threadTs the thread timestamp, or null if the message is not in a thread
+     * @return the permalink of the message
+     */
+    public String getPermalink(final String channelId, final String ts, final String threadTs) {
+        final boolean reply = threadTs != null && !threadTs.equals(ts);
+        final String key = channelId + (reply ? ":reply" : ":message");
+        final Template template = templateMap.get(key);
+        if (template == UNRESOLVABLE) {
+            return sampler.apply(channelId, ts);
+        }
+        if (template != null) {
+            return template.apply(channelId, ts, threadTs);
+        }
+        final String sample = sampler.apply(channelId, ts);
+        if (StringUtil.isBlank(sample)) {
+            // not cached, so that a transient failure is retried with the next message
+            return sample;
+        }
+        final Template learned = learn(sample, channelId, ts, reply ? threadTs : null);
+        if (learned == null) {
+            if (templateMap.putIfAbsent(key, UNRESOLVABLE) == null) {
+                logger.info("Could not learn a permalink template for {}, using chat.getPermalink: {}", key, sample);
+            }
+        } else if (templateMap.putIfAbsent(key, learned) == null && logger.isDebugEnabled()) {
+            logger.debug("Learned a permalink template for {}: {}", key, learned);
+        }
+        return sample;
+    }
+
+    /**
+     * Builds a template from a sample permalink. The template is accepted only if it contains
+     * the message timestamp (and the thread timestamp for replies) and reproduces the sample exactly.
+     *
+     * @param sample the permalink returned by Slack
+     * @param channelId the channel ID of the sample message
+     * @param ts the timestamp of the sample message
+     * @param threadTs the thread timestamp of the sample message, or null if it is not a reply
+     * @return the template, or null if the sample does not match the expected form
+     */
+    protected static Template learn(final String sample, final String channelId, final String ts, final String threadTs) {
+        if (StringUtil.isBlank(sample) || StringUtil.isBlank(ts)) {
+            return null;
+        }
+        final String pts = "/p" + ts.replace(".", StringUtil.EMPTY);
+        final int tsPos = sample.lastIndexOf(pts);
+        if (tsPos < 0) {
+            return null;
+        }
+        final List<Object> parts = new ArrayList<>();
+        addLiteral(parts, sample.substring(0, tsPos + 2), channelId);
+        parts.add(Token.TS);
+        final String suffix = sample.substring(tsPos + pts.length());
+        if (threadTs != null) {
+            final int threadPos = suffix.indexOf(THREAD_TS_PARAM + threadTs);
+            if (threadPos < 0) {
+                return null;
+            }
+            addLiteral(parts, suffix.substring(0, threadPos + THREAD_TS_PARAM.length()), channelId);
+            parts.add(Token.THREAD_TS);
+            addLiteral(parts, suffix.substring(threadPos + THREAD_TS_PARAM.length() + threadTs.length()), channelId);
+        } else {
+            if (suffix.contains(THREAD_TS_PARAM)) {
+                return null;
+            }
+            addLiteral(parts, suffix, channelId);
+        }
+        final Template template = new Template(parts);
+        if (!sample.equals(template.apply(channelId, ts, threadTs))) {
+            return null;
+        }
+        return template;
+    }
+
+    private static void addLiteral(final List<Object> parts, final String value, final String channelId) {
+        if (StringUtil.isEmpty(channelId)) {
+            parts.add(value);
+            return;
+        }
+        int start = 0;
+        int pos;
+        while ((pos = value.indexOf(channelId, start)) >= 0) {
+            if (pos > start) {
+                parts.add(value.substring(start, pos));
+            }
+            parts.add(Token.CHANNEL);
+            start = pos + channelId.length();
+        }
+        if (start < value.length()) {
+            parts.add(value.substring(start));
+        }
+    }
+
+    /**
+     * Placeholders of a permalink template.
+     */
+    protected enum Token {
+        /** The channel ID. */
+        CHANNEL,
+        /** The message timestamp without the dot. */
+        TS,
+        /** The thread timestamp. */
+        THREAD_TS
+    }
+
+    /**
+     * A permalink template made of literal strings and {@link Token} placeholders.
+     */
+    protected static class Template {
+
+        /** The literal strings and placeholders of this template. */
+        protected final List<Object> parts;
+
+        /**
+         * Creates a template from its parts.
+         *
+         * @param parts the literal strings and placeholders
+         */
+        protected Template(final List<Object> parts) {
+            this.parts = parts;
+        }
+
+        /**
+         * Builds a permalink from this template.
+         *
+         * @param channelId the channel ID
+         * @param ts the message timestamp
+         * @param threadTs the thread timestamp
+         * @return the permalink
+         */
+        protected String apply(final String channelId, final String ts, final String threadTs) {
+            final StringBuilder buf = new StringBuilder(100);
+            for (final Object part : parts) {
+                if (part == Token.CHANNEL) {
+                    buf.append(channelId);
+                } else if (part == Token.TS) {
+                    final long encodedTs = SlackTimestamp.parse(ts);
+                    if (encodedTs != SlackTimestamp.INVALID) {
+                        SlackTimestamp.appendPermalinkId(buf, encodedTs);
+                    } else {
+                        for (int i = 0; i < ts.length(); i++) {
+                            final char c = ts.charAt(i);
+                            if (c != '.') {
+                                buf.append(c);
+                            }
+                        }
+                    }
+                } else if (part == Token.THREAD_TS) {
+                    buf.append(threadTs);
+                } else {
+                    buf.append(part);
+                }
+            }
+            return buf.toString();
+        }
+
+        @Override
+        public String toString() {
+            return parts.toString();
+        }
+    }
+}
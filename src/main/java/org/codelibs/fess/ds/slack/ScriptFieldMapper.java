@@ -0,0 +1,216 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A script compiled into direct field accessors. Scripts that only reference fields of the
+ * document map, such as {@code message.text}, or concatenate such fields with string literals,
+ * such as {@code message.user + " #" + message.channel}, are evaluated without the script engine.
+ * Scripts using anything else (method calls, operators other than string concatenation, GString
+ * interpolation, unknown fields) are not compiled and stay with the script engine.
+ */
+public class ScriptFieldMapper {
+
+    /** Literal strings and field names in order; field names are stored as {@link FieldRef}. */
+    protected final Object[] parts;
+
+    /** Name of the document map in the script context, such as "message". */
+    protected final String rootName;
+
+    /**
+     * Creates a compiled script.
+     *
+     * @param rootName the name of the document map in the script context
+     * @param parts the literal strings and field references in order
+     */
+    protected ScriptFieldMapper(final String rootName, final Object[] parts) {
+        this.rootName = rootName;
+        this.parts = parts;
+    }
+
+    /**
+     * Compiles a script into field accessors if it is a plain field reference or a concatenation of
+     * field references and string literals.
+     *
+     * @param script the script
+     * @param rootName the name of the document map, such as "message"
+     * @param fields the fields known to exist in the document map
+     * @param stringFields the fields known to hold strings, which may be concatenated
+     * @return the compiled script, or null if the script needs the script engine
+     */
+    public static ScriptFieldMapper compile(final String script, final String rootName, final Set<String> fields,
+            final Set<String> stringFields) {
+        if (script == null) {
+            return null;
+        }
+        final String prefix = rootName + ".";
+        final List<Object> parts = new ArrayList<>();
+        final int length = script.length();
+        int pos = skipWhitespace(script, 0);
+        if (pos >= length) {
+            return null;
+        }
+        while (true) {
+            final char c = script.charAt(pos);
+            if (c == '"' || c == '\'') {
+                final StringBuilder buf = new StringBuilder();
+                pos = readLiteral(script, pos, buf);
+                if (pos < 0) {
+                    return null;
+                }
+                parts.add(buf.toString());
+            } else if (script.startsWith(prefix, pos)) {
+                final int start = pos + prefix.length();
+                int end = start;
+                while (end < length && (Character.isLetterOrDigit(script.charAt(end)) || script.charAt(end) == '_')) {
+                    end++;
+                }
+                final String field = script.substring(start, end);
+                if (!fields.contains(field)) {
+                    return null;
+                }
+                parts.add(new FieldRef(field));
+                pos = end;
+            } else {
+                return null;
+            }
+            pos = skipWhitespace(script, pos);
+            if (pos >= length) {
+                break;
+            }
+            if (script.charAt(pos) != '+') {
+                return null;
+            }
+            pos = skipWhitespace(script, pos + 1);
+            if (pos >= length) {
+                return null;
+            }
+        }
+        if (parts.size() > 1) {
+            for (final Object part : parts) {
+                if (part instanceof FieldRef ref && !stringFields.contains(ref.name)) {
+                    return null;
+                }
+            }
+        }
+        return new ScriptFieldMapper(rootName, parts.toArray());
+    }
+
+    /**
+     * Evaluates this script against a script context.
+     *
+     * @param context the script context containing the document map
+     * @return the value of the script
+     */
+    public Object apply(final Map<String, Object> context) {
+        final Map<?, ?> document = context.get(rootName) instanceof Map<?, ?> map ? map : Map.of();
+        if (parts.length == 1) {
+            return parts[0] instanceof FieldRef ref ? document.get(ref.name) : parts[0];
+        }
+        final StringBuilder buf = new StringBuilder(64);
+        for (final Object part : parts) {
+            if (part instanceof FieldRef ref) {
+                buf.append(document.get(ref.name));
+            } else {
+                buf.append((String) part);
+            }
+        }
+        return buf.toString();
+    }
+
+    private static int skipWhitespace(final String script, final int start) {
+        int pos = start;
+        while (pos < script.length() && Character.isWhitespace(script.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Reads a quoted string literal.
+     *
+     * @param script the script
+     * @param start the position of the opening quote
+     * @param buf the buffer receiving the unescaped literal
+     * @return the position after the closing quote, or -1 if the literal is not a plain string
+     */
+    private static int readLiteral(final String script, final int start, final StringBuilder buf) {
+        final char quote = script.charAt(start);
+        int pos = start + 1;
+        while (pos < script.length()) {
+            final char c = script.charAt(pos);
+            if (c == quote) {
+                return pos + 1;
+            }
+            if (c == '$' && quote == '"') {
+                // GString interpolation
+                return -1;
+            }
+            if (c == '\\') {
+                if (pos + 1 >= script.length()) {
+                    return -1;
+                }
+                final char escaped = script.charAt(pos + 1);
+                switch (escaped) {
+                case 'n' -> buf.append('\n');
+                case 't' -> buf.append('\t');
+                case 'r' -> buf.append('\r');
+                case '\\', '"', '\'', '$' -> buf.append(escaped);
+                default -> {
+                    return -1;
+                }
+                }
+                pos += 2;
+                continue;
+            }
+            if (c == '\n') {
+                return -1;
+            }
+            buf.append(c);
+            pos++;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buf = new StringBuilder();
+        for (final Object part : parts) {
+            if (buf.length() > 0) {
+                buf.append(" + ");
+            }
+            if (part instanceof FieldRef ref) {
+                buf.append(rootName).append('.').append(ref.name);
+            } else {
+                buf.append('"').append(part).append('"');
+            }
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A reference to a field of the document map.
+     *
+     * @param name the field name
+     */
+    protected record FieldRef(String name) {
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * A crawl-scoped set of the identities already processed, such as messages keyed by channel and
+ * timestamp and files keyed by file id. Identities are kept as 64-bit hashes in lock-striped
+ * open-addressing tables, about 8 to 16 bytes each. When the tables exceed the maximum number of
+ * entries and a spill directory is set, the hashes are merged into a sorted run file that is
+ * memory-mapped and binary-searched, and the tables are cleared. Without a spill directory, new
+ * identities are no longer recorded once the tables are full, so their duplicates are processed
+ * again, as without deduplication.
+ */
+public class SeenSet implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(SeenSet.class);
+
+    /** Number of lock stripes, a power of two. */
+    protected static final int STRIPE_COUNT = 16;
+
+    /** Kind of message identities. */
+    public static final char MESSAGE = 'm';
+
+    /** Kind of thread identities. */
+    public static final char THREAD = 't';
+
+    /** Hash function of identities. */
+    protected static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /** The in-memory tables. */
+    protected final LongHashSet[] stripes = new LongHashSet[STRIPE_COUNT];
+
+    /** Number of entries in memory above which they are spilled or no more are recorded, or 0 for no limit. */
+    protected final long maxEntries;
+
+    /** Directory of the spill file, or null to stop recording entries at the limit. */
+    protected final Path spillDir;
+
+    /** Guards the spill run: shared by lookups, exclusive while spilling. */
+    protected final ReadWriteLock spillLock = new ReentrantReadWriteLock();
+
+    /** Number of entries in memory. */
+    protected final AtomicLong memoryCount = new AtomicLong();
+
+    /** Number of duplicates found. */
+    protected final AtomicLong duplicateCount = new AtomicLong();
+
+    /** Number of spills. */
+    protected final AtomicInteger spillCount = new AtomicInteger();
+
+    /** Whether the tables are full and new entries are no longer recorded. */
+    protected final AtomicBoolean full = new AtomicBoolean();
+
+    /** The sorted run file, or null. */
+    protected Path runFile;
+
+    /** The hashes in the sorted run file, or null. */
+    protected LongBuffer run;
+
+    /**
+     * Creates a seen set.
+     *
+     * @param maxEntries the number of entries kept in memory before spilling, or 0 for no limit
+     * @param spillDir the directory of the spill file, or null to stop recording entries at the limit
+     */
+    public SeenSet(final long maxEntries, final Path spillDir) {
+        this.maxEntries = Math.max(0L, maxEntries);
+        this.spillDir = spillDir;
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new LongHashSet();
+        }
+    }
+
+    /**
+     * Returns the identity of a message.
+     *
+     * @param channelId the channel ID
+     * @param ts the message timestamp
+     * @return the identity
+     */
+    public static String messageKey(final String channelId, final String ts) {
+        return "m:" + channelId + ":" + ts;
+    }
+
+    /**
+     * Returns the identity of the replies of a thread.
+     *
+     * @param channelId the channel ID
+     * @param threadTs the thread timestamp
+     * @return the identity
+     */
+    public static String threadKey(final String channelId, final String threadTs) {
+        return "t:" + channelId + ":" + threadTs;
+    }
+
+    /**
+     * Returns the identity of a file.
+     *
+     * @param fileId the file ID
+     * @return the identity
+     */
+    public static String fileKey(final String fileId) {
+        return "f:" + fileId;
+    }
+
+    /**
+     * Adds an identity.
+     *
+     * @param key the identity
+     * @return true if the identity was not seen before
+     */
+    public boolean add(final String key) {
+        return addHash(HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong());
+    }
+
+    /**
+     * Adds the identity of a message or thread without building a key string.
+     *
+     * @param kind {@link #MESSAGE} or {@link #THREAD}
+     * @param channelId the channel ID
+     * @param ts the timestamp encoded by {@link SlackTimestamp}
+     * @return true if the identity was not seen before
+     */
+    public boolean add(final char kind, final String channelId, final long ts) {
+        return addHash(HASH_FUNCTION.newHasher().putChar(kind).putUnencodedChars(channelId).putLong(ts).hash().asLong());
+    }
+
+    /**
+     * Adds the hash of an identity. Once the tables are full without a spill directory, the hash is
+     * only looked up and not recorded.
+     *
+     * @param hash the hash
+     * @return true if the hash was not seen before
+     */
+    protected boolean addHash(final long hash) {
+        final boolean added;
+        final boolean record = maxEntries == 0 || spillDir != null || memoryCount.get() < maxEntries;
+        spillLock.readLock().lock();
+        try {
+            if (run != null && containsInRun(hash)) {
+                added = false;
+            } else {
+                final LongHashSet stripe = stripes[(int) (hash ^ hash >>> 32) & STRIPE_COUNT - 1];
+                synchronized (stripe) {
+                    added = record ? stripe.add(hash) : !stripe.contains(hash);
+                }
+            }
+            if (!added) {
+                duplicateCount.incrementAndGet();
+                return false;
+            }
+            if (!record) {
+                if (full.compareAndSet(false, true)) {
+                    logger.warn("Stopped recording processed identities at {} entries; set dedup_spill_dir to spill them to disk.",
+                            maxEntries);
+                }
+                return true;
+            }
+            memoryCount.incrementAndGet();
+        } finally {
+            spillLock.readLock().unlock();
+        }
+        if (maxEntries > 0 && spillDir != null && memoryCount.get() > maxEntries) {
+            spill();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of duplicates found.
+     *
+     * @return the number of duplicates
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries in memory and in the spill file
+     */
+    public long size() {
+        spillLock.readLock().lock();
+        try {
+            return memoryCount.get() + (run != null ? run.capacity() : 0);
+        } finally {
+            spillLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether a hash is in the sorted run; the caller must hold the spill lock.
+     *
+     * @param hash the hash
+     * @return true if found
+     */
+    protected boolean containsInRun(final long hash) {
+        int low = 0;
+        int high = run.capacity() - 1;
+        while (low <= high) {
+            final int mid = low + high >>> 1;
+            final long value = run.get(mid);
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges the in-memory entries into the sorted run file and clears the tables.
+     */
+    protected void spill() {
+        spillLock.writeLock().lock();
+        try {
+            if (memoryCount.get() <= maxEntries) {
+                // another thread spilled
+                return;
+            }
+            int memorySize = 0;
+            for (final LongHashSet stripe : stripes) {
+                memorySize += stripe.size;
+            }
+            final long[] memory = new long[memorySize];
+            int length = 0;
+            for (final LongHashSet stripe : stripes) {
+                length = stripe.copyTo(memory, length);
+            }
+            Arrays.sort(memory, 0, length);
+            final int runLength = run != null ? run.capacity() : 0;
+            Files.createDirectories(spillDir);
+            final Path newRunFile = Files.createTempFile(spillDir, "slack-seen-", ".run");
+            try (FileChannel channel = FileChannel.open(newRunFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) (runLength + length) * Long.BYTES);
+                final LongBuffer merged = buffer.asLongBuffer();
+                int i = 0;
+                int j = 0;
+                while (i < runLength || j < length) {
+                    if (j >= length || i < runLength && run.get(i) <= memory[j]) {
+                        merged.put(run.get(i++));
+                    } else {
+                        merged.put(memory[j++]);
+                    }
+                }
+                merged.flip();
+                replaceRun(newRunFile, merged);
+            }
+            for (final LongHashSet stripe : stripes) {
+                stripe.clear();
+            }
+            memoryCount.set(0L);
+            spillCount.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Spilled {} seen entries to {}, {} entries on disk.", length, newRunFile, run.capacity());
+            }
+        } catch (final IOException e) {
+            logger.warn("Failed to spill seen entries to {}, keeping them in memory.", spillDir, e);
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    private void replaceRun(final Path newRunFile, final LongBuffer newRun) {
+        final Path oldRunFile = runFile;
+        runFile = newRunFile;
+        run = newRun;
+        deleteRunFile(oldRunFile);
+    }
+
+    private static void deleteRunFile(final Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            logger.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        spillLock.writeLock().lock();
+        try {
+            for (final LongHashSet stripe : stripes) {
+                stripe.clear();
+            }
+            memoryCount.set(0L);
+            run = null;
+            deleteRunFile(runFile);
+            runFile = null;
+        } finally {
+            spillLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SeenSet [maxEntries=" + maxEntries + ", spillDir=" + spillDir + "]";
+    }
+
+    /**
+     * An open-addressing set of long values with linear probing; callers synchronize on the set.
+     */
+    protected static class LongHashSet {
+
+        /** Slot values; 0 marks an empty slot and the value 0 is stored as a flag. */
+        protected long[] table = new long[64];
+
+        /** Whether the value 0 is in the set. */
+        protected boolean hasZero;
+
+        /** Number of values. */
+        protected int size;
+
+        /**
+         * Adds a value.
+         *
+         * @param value the value
+         * @return true if the value was not in the set
+         */
+        protected boolean add(final long value) {
+            if (value == 0L) {
+                if (hasZero) {
+                    return false;
+                }
+                hasZero = true;
+                size++;
+                return true;
+            }
+            if ((size + 1) * 4L > table.length * 3L) {
+                resize();
+            }
+            if (!insert(table, value)) {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        private static boolean insert(final long[] table, final long value) {
+            final int mask = table.length - 1;
+            int index = (int) (value ^ value >>> 29) * 0x9E3779B9 & mask;
+            while (true) {
+                final long slot = table[index];
+                if (slot == 0L) {
+                    table[index] = value;
+                    return true;
+                }
+                if (slot == value) {
+                    return false;
+                }
+                index = index + 1 & mask;
+            }
+        }
+
+        private void resize() {
+            final long[] newTable = new long[table.length * 2];
+            for (final long value : table) {
+                if (value != 0L) {
+                    insert(newTable, value);
+                }
+            }
+            table = newTable;
+        }
+
+        /**
+         * Returns whether a value is in the set.
+         *
+         * @param value the value
+         * @return true if found
+         */
+        protected boolean contains(final long value) {
+            if (value == 0L) {
+                return hasZero;
+            }
+            final int mask = table.length - 1;
+            int index = (int) (value ^ value >>> 29) * 0x9E3779B9 & mask;
+            while (true) {
+                final long slot = table[index];
+                if (slot == 0L) {
+                    return false;
+                }
+                if (slot == value) {
+                    return true;
+                }
+                index = index + 1 & mask;
+            }
+        }
+
+        /**
+         * Copies the values to an array.
+         *
+         * @param array the destination
+         * @param offset the first index to write
+         * @return the index after the last value written
+         */
+        protected synchronized int copyTo(final long[] array, final int offset) {
+            int index = offset;
+            if (hasZero) {
+                array[index++] = 0L;
+            }
+            for (final long value : table) {
+                if (value != 0L) {
+                    array[index++] = value;
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Removes all values.
+         */
+        protected synchronized void clear() {
+            table = new long[64];
+            hasZero = false;
+            size = 0;
+        }
+    }
+}
@@ -16,22 +16,43 @@
 package org.codelibs.fess.ds.slack;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.codelibs.core.exception.InterruptedRuntimeException;
 import org.codelibs.core.lang.StringUtil;
 import org.codelibs.curl.Curl;
-import org.codelibs.curl.CurlResponse;
+import org.codelibs.curl.CurlRequest;
 import org.codelibs.fess.Constants;
 import org.codelibs.fess.ds.slack.api.Authentication;
+import org.codelibs.fess.ds.slack.api.RateLimitGovernor;
 import org.codelibs.fess.ds.slack.api.method.bots.BotsInfoRequest;
 import org.codelibs.fess.ds.slack.api.method.chat.ChatGetPermalinkRequest;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsHistoryRequest;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsHistoryResponse;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsInfoRequest;
+import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsJoinRequest;
+import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsJoinResponse;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsListRequest;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsListResponse;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsRepliesRequest;
@@ -51,8 +72,11 @@ import org.codelibs.fess.ds.slack.api.type.Team;
 import org.codelibs.fess.ds.slack.api.type.User;
 import org.codelibs.fess.entity.DataStoreParams;
 
+import com.google.common.cache.AbstractCache.SimpleStatsCounter;
+import com.google.common.cache.AbstractCache.StatsCounter;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 
 /**
@@ -79,6 +103,8 @@ public class SlackClient implements Closeable {
     protected static final String INCLUDE_PRIVATE_PARAM = "include_private";
     /** Parameter name for specifying channels to crawl. */
     protected static final String CHANNELS_PARAM = "channels";
+    /** Prefix of bot user OAuth tokens. */
+    protected static final String BOT_TOKEN_PREFIX = "xoxb-";
     /** Special value to indicate all channels should be crawled. */
     protected static final String CHANNELS_ALL = "*all";
     /** Separator for multiple channel names. */
@@ -105,6 +131,22 @@ public class SlackClient implements Closeable {
     /** Parameter name for channel cache size configuration. */
     protected static final String CHANNEL_CACHE_SIZE_PARAM = "channel_cache_size";
 
+    /** Parameter name for enabling the shared rate limit budget. */
+    protected static final String RATE_LIMIT_PARAM = "rate_limit";
+    /** Parameter name for the rate limit bucket file shared by crawler processes. */
+    protected static final String RATE_LIMIT_FILE_PARAM = "rate_limit_file";
+    /** Parameter name prefix for the requests per minute of a tier, such as rate_limit_tier3. */
+    protected static final String RATE_LIMIT_TIER_PARAM_PREFIX = "rate_limit_tier";
+
+    /** Parameter name for the number of threads prefetching the users and channels mentioned in a page. */
+    protected static final String PREFETCH_THREADS_PARAM = "prefetch_threads";
+
+    /** Parameter name for the number of threads fetching the pages of files.list after the first one. */
+    protected static final String FILE_PAGE_THREADS_PARAM = "file_page_threads";
+
+    /** Parameter name for the timeout in milliseconds of connecting and of each read of a file download. */
+    protected static final String DOWNLOAD_IDLE_TIMEOUT_PARAM = "download_idle_timeout";
+
     /** Default pagination limit for channels. */
     protected static final String DEFAULT_CHANNEL_COUNT = "100";
     /** Default pagination limit for users. */
@@ -115,6 +157,19 @@ public class SlackClient implements Closeable {
     protected static final String DEFAULT_FILE_COUNT = "20";
     /** Default cache size for all caches. */
     protected static final String DEFAULT_CACHE_SIZE = "10000";
+    /** Default number of prefetch threads. */
+    protected static final String DEFAULT_PREFETCH_THREADS = "4";
+    /** Default number of threads fetching files.list pages. */
+    protected static final String DEFAULT_FILE_PAGE_THREADS = "4";
+    /** Default download idle timeout in milliseconds. */
+    protected static final String DEFAULT_DOWNLOAD_IDLE_TIMEOUT = "30000";
+
+    /** Name of the user cache in cache statistics. */
+    public static final String USERS_CACHE = "users";
+    /** Name of the bot cache in cache statistics. */
+    public static final String BOTS_CACHE = "bots";
+    /** Name of the channel cache in cache statistics. */
+    public static final String CHANNELS_CACHE = "channels";
 
     /** Whether to include private channels in operations. */
     protected final Boolean includePrivate;
@@ -128,6 +183,23 @@ public class SlackClient implements Closeable {
     protected LoadingCache<String, Bot> botsCache;
     /** Cache for channel information to improve performance. */
     protected LoadingCache<String, Channel> channelsCache;
+    /** Resolver that synthesizes permalinks from per-channel templates. */
+    protected final PermalinkResolver permalinkResolver;
+    /** Handler run on close instead of invalidating the caches when they are shared, or null. */
+    protected final Runnable closeHandler;
+    /** Executor loading uncached users and channels ahead of the workers, or null if prefetching is disabled. */
+    protected final ExecutorService prefetchExecutor;
+    /** Cache keys being prefetched. */
+    protected final Set<String> prefetchingKeys;
+    /** Executor fetching files.list pages concurrently, or null to fetch them one by one. */
+    protected final ExecutorService filePageExecutor;
+    /** Number of files.list pages fetched ahead of the page being consumed. */
+    protected final int filePageWindow;
+    /** Statistics of the cache lookups made through this client, keyed by cache name. */
+    protected final Map<String, StatsCounter> lookupStats =
+            Map.of(USERS_CACHE, new SimpleStatsCounter(), BOTS_CACHE, new SimpleStatsCounter(), CHANNELS_CACHE, new SimpleStatsCounter());
+    /** Cache keys prefetched through this client whose first lookup is already counted by the prefetch. */
+    protected final Set<String> prefetchedKeys = ConcurrentHashMap.newKeySet();
 
     /**
      * Creates a new Slack client with the specified configuration parameters.
@@ -145,8 +217,20 @@ public class SlackClient implements Closeable {
 
         this.paramMap = paramMap;
         includePrivate = isIncludePrivate(paramMap);
+        permalinkResolver = new PermalinkResolver(this::getPermalink);
+        closeHandler = null;
+        prefetchExecutor = newPrefetchExecutor(paramMap);
+        prefetchingKeys = ConcurrentHashMap.newKeySet();
+        final int filePageThreads = getFilePageThreads(paramMap);
+        filePageExecutor = newFilePageExecutor(filePageThreads);
+        filePageWindow = filePageThreads * 2;
 
         authentication = new Authentication(token);
+        if (isRateLimitEnabled(paramMap)) {
+            final String rateLimitFile = paramMap.getAsString(RATE_LIMIT_FILE_PARAM, StringUtil.EMPTY);
+            authentication.setRateLimitBudget(RateLimitGovernor.getInstance()
+                    .getBudget(token, getRateLimitTierRates(paramMap), rateLimitFile.isEmpty() ? null : Paths.get(rateLimitFile)));
+        }
 
         final String httpProxyHost = getProxyHost(paramMap);
         final String httpProxyPort = getProxyPort(paramMap);
@@ -163,6 +247,7 @@ public class SlackClient implements Closeable {
 
         usersCache = CacheBuilder.newBuilder()
                 .maximumSize(Integer.parseInt(paramMap.getAsString(USER_CACHE_SIZE_PARAM, DEFAULT_CACHE_SIZE)))
+                .recordStats()
                 .build(new CacheLoader<String, User>() {
                     @Override
                     public User load(final String key) {
@@ -171,6 +256,7 @@ public class SlackClient implements Closeable {
                 });
         botsCache = CacheBuilder.newBuilder()
                 .maximumSize(Integer.parseInt(paramMap.getAsString(BOT_CACHE_SIZE_PARAM, DEFAULT_CACHE_SIZE)))
+                .recordStats()
                 .build(new CacheLoader<String, Bot>() {
                     @Override
                     public Bot load(final String key) {
@@ -179,6 +265,7 @@ public class SlackClient implements Closeable {
                 });
         channelsCache = CacheBuilder.newBuilder()
                 .maximumSize(Integer.parseInt(paramMap.getAsString(CHANNEL_CACHE_SIZE_PARAM, DEFAULT_CACHE_SIZE)))
+                .recordStats()
                 .build(new CacheLoader<String, Channel>() {
                     @Override
                     public Channel load(final String key) {
@@ -196,6 +283,84 @@ public class SlackClient implements Closeable {
         });
     }
 
+    /**
+     * Creates a Slack client that shares the authentication, caches and permalink templates of another
+     * client but uses its own configuration parameters. Used by {@link SlackClientRegistry} so that
+     * concurrent crawls with the same token do not each warm up their own caches.
+     *
+     * @param paramMap the configuration parameters of this client
+     * @param sharedClient the client whose authentication and caches are shared
+     * @param closeHandler the handler run when this client is closed
+     */
+    protected SlackClient(final DataStoreParams paramMap, final SlackClient sharedClient, final Runnable closeHandler) {
+        this.paramMap = paramMap;
+        this.closeHandler = closeHandler;
+        includePrivate = isIncludePrivate(paramMap);
+        authentication = sharedClient.authentication;
+        usersCache = sharedClient.usersCache;
+        botsCache = sharedClient.botsCache;
+        channelsCache = sharedClient.channelsCache;
+        permalinkResolver = sharedClient.permalinkResolver;
+        prefetchExecutor = sharedClient.prefetchExecutor;
+        prefetchingKeys = sharedClient.prefetchingKeys;
+        filePageExecutor = sharedClient.filePageExecutor;
+        filePageWindow = sharedClient.filePageWindow;
+    }
+
+    /**
+     * Creates the executor prefetching mentioned users and channels.
+     *
+     * @param paramMap the configuration parameters
+     * @return the executor, or null if prefetching is disabled
+     */
+    protected ExecutorService newPrefetchExecutor(final DataStoreParams paramMap) {
+        final int threads;
+        try {
+            threads = Integer.parseInt(paramMap.getAsString(PREFETCH_THREADS_PARAM, DEFAULT_PREFETCH_THREADS).trim());
+        } catch (final NumberFormatException e) {
+            throw new SlackDataStoreException("parameter " + "'" + PREFETCH_THREADS_PARAM + "' invalid.", e);
+        }
+        if (threads <= 0) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "SlackPrefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the number of threads fetching files.list pages.
+     *
+     * @param paramMap the configuration parameters
+     * @return the number of threads, or 0 to fetch the pages one by one
+     */
+    protected int getFilePageThreads(final DataStoreParams paramMap) {
+        try {
+            return Math.max(0, Integer.parseInt(paramMap.getAsString(FILE_PAGE_THREADS_PARAM, DEFAULT_FILE_PAGE_THREADS).trim()));
+        } catch (final NumberFormatException e) {
+            throw new SlackDataStoreException("parameter " + "'" + FILE_PAGE_THREADS_PARAM + "' invalid.", e);
+        }
+    }
+
+    /**
+     * Creates the executor fetching files.list pages concurrently.
+     *
+     * @param threads the number of threads
+     * @return the executor, or null if the pages are fetched one by one
+     */
+    protected ExecutorService newFilePageExecutor(final int threads) {
+        if (threads <= 0) {
+            return null;
+        }
+        return Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r, "SlackFilePage");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      * Creates a bots.info API request builder.
      *
@@ -245,6 +410,16 @@ public class SlackClient implements Closeable {
         return new ConversationsInfoRequest(authentication, channel);
     }
 
+    /**
+     * Creates a conversations.join API request builder.
+     *
+     * @param channel the channel ID
+     * @return a new ConversationsJoinRequest instance
+     */
+    public ConversationsJoinRequest conversationsJoin(final String channel) {
+        return new ConversationsJoinRequest(authentication, channel);
+    }
+
     /**
      * Creates a conversations.replies API request builder.
      *
@@ -305,12 +480,71 @@ public class SlackClient implements Closeable {
 
     @Override
     public void close() {
-        // TODO
+        if (closeHandler != null) {
+            closeHandler.run();
+            return;
+        }
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
+        if (filePageExecutor != null) {
+            filePageExecutor.shutdownNow();
+        }
         usersCache.invalidateAll();
         botsCache.invalidateAll();
         channelsCache.invalidateAll();
     }
 
+    /**
+     * Starts loading the authors, mentioned users and linked channels of a page of messages that are
+     * not cached yet, in parallel, so that the workers rendering the messages find them in the caches.
+     *
+     * @param messages the messages of a page
+     */
+    public void prefetch(final List<Message> messages) {
+        if (prefetchExecutor == null || messages == null || messages.isEmpty()) {
+            return;
+        }
+        final Set<String> userIds = new HashSet<>();
+        final Set<String> channelIds = new HashSet<>();
+        for (final Message message : messages) {
+            if (message.getUser() != null) {
+                userIds.add(message.getUser());
+            }
+            MrkdwnRenderer.collectIds(message.getText(), userIds, channelIds);
+        }
+        userIds.forEach(id -> prefetch(usersCache, USERS_CACHE, id));
+        channelIds.forEach(id -> prefetch(channelsCache, CHANNELS_CACHE, id));
+    }
+
+    private <T> void prefetch(final LoadingCache<String, T> cache, final String cacheName, final String key) {
+        if (cache.getIfPresent(key) != null) {
+            return;
+        }
+        final String prefetchingKey = cacheName + ":" + key;
+        if (!prefetchingKeys.add(prefetchingKey)) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    if (cache.getIfPresent(key) == null) {
+                        load(cache, cacheName, key);
+                        prefetchedKeys.add(prefetchingKey);
+                    }
+                } catch (final Exception e) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Failed to prefetch {} in {} cache.", key, cacheName, e);
+                    }
+                } finally {
+                    prefetchingKeys.remove(prefetchingKey);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            prefetchingKeys.remove(prefetchingKey);
+        }
+    }
+
     /**
      * Extracts the OAuth access token from the configuration parameters.
      *
@@ -331,6 +565,39 @@ public class SlackClient implements Closeable {
         return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(INCLUDE_PRIVATE_PARAM, Constants.FALSE));
     }
 
+    /**
+     * Determines whether API requests draw from the shared rate limit budget. Rate limiting is
+     * disabled unless enabled in the parameters, so existing configurations keep sending requests
+     * unthrottled.
+     *
+     * @param paramMap the configuration parameters
+     * @return true if rate limiting is enabled, false otherwise
+     */
+    protected boolean isRateLimitEnabled(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(RATE_LIMIT_PARAM, Constants.FALSE));
+    }
+
+    /**
+     * Returns the requests per minute of Slack rate limit tiers 1 to 4.
+     *
+     * @param paramMap the configuration parameters
+     * @return the requests per minute of each tier
+     */
+    protected int[] getRateLimitTierRates(final DataStoreParams paramMap) {
+        final int[] tierRates = RateLimitGovernor.getDefaultTierRates();
+        for (int i = 0; i < tierRates.length; i++) {
+            final String value = paramMap.getAsString(RATE_LIMIT_TIER_PARAM_PREFIX + (i + 1));
+            if (StringUtil.isNotBlank(value)) {
+                try {
+                    tierRates[i] = Integer.parseInt(value.trim());
+                } catch (final NumberFormatException e) {
+                    throw new SlackDataStoreException("parameter " + "'" + RATE_LIMIT_TIER_PARAM_PREFIX + (i + 1) + "' invalid.", e);
+                }
+            }
+        }
+        return tierRates;
+    }
+
     /**
      * Extracts the proxy host from the configuration parameters.
      *
@@ -386,7 +653,7 @@ public class SlackClient implements Closeable {
      * @throws ExecutionException if the bot information cannot be retrieved
      */
     public Bot getBot(final String botName) throws ExecutionException {
-        return botsCache.get(botName);
+        return lookup(botsCache, BOTS_CACHE, botName);
     }
 
     /**
@@ -397,7 +664,7 @@ public class SlackClient implements Closeable {
      * @throws ExecutionException if the user information cannot be retrieved
      */
     public User getUser(final String userName) throws ExecutionException {
-        return usersCache.get(userName);
+        return lookup(usersCache, USERS_CACHE, userName);
     }
 
     /**
@@ -408,7 +675,113 @@ public class SlackClient implements Closeable {
      * @throws ExecutionException if the channel information cannot be retrieved
      */
     public Channel getChannel(final String channelName) throws ExecutionException {
-        return channelsCache.get(channelName);
+        return lookup(channelsCache, CHANNELS_CACHE, channelName);
+    }
+
+    /**
+     * Looks up a cache and records the lookup in the statistics of this client. The first lookup of a
+     * key prefetched through this client is not recorded, since the prefetch recorded it as a miss and
+     * a load, so that prefetching does not count the API calls it makes as calls avoided.
+     *
+     * @param <V> the type of the cached values
+     * @param cache the cache
+     * @param cacheName the name of the cache
+     * @param key the key
+     * @return the cached or loaded value
+     * @throws ExecutionException if the value cannot be loaded
+     */
+    protected <V> V lookup(final LoadingCache<String, V> cache, final String cacheName, final String key) throws ExecutionException {
+        final V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (prefetchedKeys.isEmpty() || !prefetchedKeys.remove(cacheName + ":" + key)) {
+                lookupStats.get(cacheName).recordHits(1);
+            }
+            return cached;
+        }
+        // a prefetched key evicted before its lookup is loaded again
+        prefetchedKeys.remove(cacheName + ":" + key);
+        return load(cache, cacheName, key);
+    }
+
+    private <V> V load(final LoadingCache<String, V> cache, final String cacheName, final String key) throws ExecutionException {
+        final StatsCounter counter = lookupStats.get(cacheName);
+        counter.recordMisses(1);
+        final long start = System.nanoTime();
+        try {
+            final V value = cache.get(key);
+            counter.recordLoadSuccess(System.nanoTime() - start);
+            return value;
+        } catch (final ExecutionException | RuntimeException e) {
+            counter.recordLoadException(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of Slack API requests made with the token of this client, including the
+     * requests of the clients sharing its authentication.
+     *
+     * @return the number of API requests
+     */
+    public long getRequestCount() {
+        return authentication.getRequestCount();
+    }
+
+    /**
+     * Returns the number of users and channels waiting to be prefetched.
+     *
+     * @return the prefetch queue depth
+     */
+    public int getPrefetchQueueSize() {
+        return prefetchExecutor instanceof ThreadPoolExecutor executor ? executor.getQueue().size() : 0;
+    }
+
+    /**
+     * Returns a snapshot of the hit/miss/load/eviction statistics of the user, bot and channel caches.
+     * Hits, misses and loads count the lookups made through this client only, so they are not mixed
+     * with those of other crawls sharing the caches through {@link SlackClientRegistry}; evictions are
+     * those of the shared cache. Statistics are cumulative for the lifetime of this client, so callers
+     * that want per-crawl figures should subtract an earlier snapshot with {@link CacheStats#minus(CacheStats)}.
+     *
+     * @return the cache statistics keyed by cache name
+     */
+    public Map<String, CacheStats> getCacheStats() {
+        final Map<String, CacheStats> statsMap = new LinkedHashMap<>();
+        statsMap.put(USERS_CACHE, getCacheStats(USERS_CACHE, usersCache));
+        statsMap.put(BOTS_CACHE, getCacheStats(BOTS_CACHE, botsCache));
+        statsMap.put(CHANNELS_CACHE, getCacheStats(CHANNELS_CACHE, channelsCache));
+        return statsMap;
+    }
+
+    private CacheStats getCacheStats(final String cacheName, final LoadingCache<String, ?> cache) {
+        final CacheStats lookups = lookupStats.get(cacheName).snapshot();
+        return new CacheStats(lookups.hitCount(), lookups.missCount(), lookups.loadSuccessCount(), lookups.loadExceptionCount(),
+                lookups.totalLoadTime(), cache.stats().evictionCount());
+    }
+
+    /**
+     * Returns whether this client uses a bot token. Bot tokens can only read the history of
+     * channels the bot is a member of.
+     *
+     * @return true if the token is a bot token, false otherwise
+     */
+    public boolean isBotToken() {
+        return authentication.getToken().startsWith(BOT_TOKEN_PREFIX);
+    }
+
+    /**
+     * Joins a public channel so that its history can be read.
+     *
+     * @param channelId the channel ID
+     * @return true if the channel was joined, false otherwise
+     */
+    public boolean joinChannel(final String channelId) {
+        final ConversationsJoinResponse response = conversationsJoin(channelId).execute();
+        if (!response.ok()) {
+            logger.warn("Slack API error occured on \"conversations.join\": {}", response.responseBody());
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -423,16 +796,84 @@ public class SlackClient implements Closeable {
     }
 
     /**
-     * Downloads a file from Slack using authenticated HTTP request.
+     * Retrieves the permalink URL for a message, synthesizing it locally from a template learned
+     * from one chat.getPermalink call per channel. Falls back to chat.getPermalink for channels
+     * whose permalinks do not match a template.
+     *
+     * @param channelId the channel ID
+     * @param ts the message timestamp
+     * @param threadTs the thread timestamp, or null if the message is not in a thread
+     * @return the permalink URL for the message
+     */
+    public String getPermalink(final String channelId, final String ts, final String threadTs) {
+        return permalinkResolver.getPermalink(channelId, ts, threadTs);
+    }
+
+    /**
+     * Downloads a file from Slack, starting at an offset so that a download interrupted by a transient
+     * failure can be resumed. The offset is requested with an HTTP Range header; if the server ignores
+     * it, the bytes before the offset are skipped. Connecting and each read of the response time out
+     * after the download idle timeout, so a stalled download does not pin a thread.
      *
      * @param fileUrl the URL of the file to download
-     * @return the HTTP response containing the file content
+     * @param offset the number of bytes already downloaded
+     * @param handler the reader of the file content from the offset
+     * @throws IOException if the connection fails or the server answers with a 5xx status, which can be retried
+     * @throws SlackDataStoreException if the server answers with another error status
      */
-    public CurlResponse getFileResponse(final String fileUrl) {
-        return Curl.get(fileUrl)
+    public void downloadFile(final String fileUrl, final long offset, final FileStreamHandler handler) throws IOException {
+        final CurlRequest request = Curl.get(fileUrl)
                 .header("Authorization", "Bearer " + getToken(paramMap))
                 .header("Content-type", "application/x-www-form-urlencoded ")
-                .execute();
+                .timeout(getDownloadIdleTimeout(), getDownloadIdleTimeout());
+        if (offset > 0L) {
+            request.header("Range", "bytes=" + offset + "-");
+        }
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        request.connect(con -> {
+            try {
+                final int status = con.getResponseCode();
+                if (status >= 500) {
+                    throw new IOException("HTTP Status " + status + " : failed to get the file from " + fileUrl);
+                }
+                if (status != 200 && status != 206) {
+                    throw new SlackDataStoreException("HTTP Status " + status + " : failed to get the file from " + fileUrl);
+                }
+                try (final InputStream in = con.getInputStream()) {
+                    if (status == 200 && offset > 0L) {
+                        in.skipNBytes(offset);
+                    }
+                    handler.accept(in);
+                }
+            } catch (final Exception e) {
+                failure.set(e);
+            } finally {
+                con.disconnect();
+            }
+        }, failure::set);
+        final Exception e = failure.get();
+        if (e == null) {
+            return;
+        }
+        if (e instanceof final IOException ioe) {
+            throw ioe;
+        }
+        // the connection failure is wrapped by the HTTP client
+        if (!(e instanceof SlackDataStoreException) && e.getCause() instanceof final IOException ioe) {
+            throw ioe;
+        }
+        if (e instanceof final RuntimeException re) {
+            throw re;
+        }
+        throw new SlackDataStoreException("Failed to get the file from " + fileUrl, e);
+    }
+
+    private int getDownloadIdleTimeout() {
+        try {
+            return Integer.parseInt(paramMap.getAsString(DOWNLOAD_IDLE_TIMEOUT_PARAM, DEFAULT_DOWNLOAD_IDLE_TIMEOUT).trim());
+        } catch (final NumberFormatException e) {
+            throw new SlackDataStoreException("parameter " + "'" + DOWNLOAD_IDLE_TIMEOUT_PARAM + "' invalid.", e);
+        }
     }
 
     /**
@@ -472,20 +913,87 @@ public class SlackClient implements Closeable {
      * @param consumer the function to process each file
      */
     public void getChannelFiles(final String channelId, final Integer count, final Consumer<File> consumer) {
-        FilesListResponse response = filesList().channel(channelId).types(getFileTypes()).count(count).execute();
-        while (true) {
-            if (!response.ok()) {
-                logger.warn("Slack API error occured on \"files.list\": {}", response.responseBody());
-                return;
+        final String types = getFileTypes();
+        getFilePages(page -> filesList().channel(channelId).types(types).count(count).page(page).execute(), consumer);
+    }
+
+    /**
+     * Retrieves all files of the workspace visible to the token, with a single files.list query
+     * instead of one per channel.
+     *
+     * @param consumer the function to process each file
+     */
+    public void getWorkspaceFiles(final Consumer<File> consumer) {
+        final Integer count = Integer.parseInt(paramMap.getAsString(FILE_COUNT_PARAM, DEFAULT_FILE_COUNT));
+        final String types = getFileTypes();
+        getFilePages(page -> filesList().types(types).count(count).page(page).execute(), consumer);
+    }
+
+    /**
+     * Retrieves all pages of a files.list query. files.list is paged by page number, so once the
+     * first page tells the number of pages, the remaining pages are fetched concurrently, a bounded
+     * number ahead, under the rate limit of the client. The files are passed to the consumer on the
+     * calling thread, in page order.
+     *
+     * @param pageRequest the request of a page by its number, starting at 1
+     * @param consumer the function to process each file
+     */
+    protected void getFilePages(final IntFunction<FilesListResponse> pageRequest, final Consumer<File> consumer) {
+        final FilesListResponse firstPage = pageRequest.apply(1);
+        if (!acceptFilePage(firstPage, consumer)) {
+            return;
+        }
+        final FilesListResponse.Paging paging = firstPage.getPaging();
+        final int pages = paging != null && paging.getPages() != null ? paging.getPages() : 1;
+        if (filePageExecutor == null) {
+            for (int page = 2; page <= pages; page++) {
+                if (!acceptFilePage(pageRequest.apply(page), consumer)) {
+                    return;
+                }
             }
-            response.getFiles().forEach(consumer);
-            if (response.getPaging().getPage() >= response.getPaging().getTotal()) {
-                break;
+            return;
+        }
+        final Deque<Future<FilesListResponse>> window = new ArrayDeque<>();
+        try {
+            int nextPage = 2;
+            while (nextPage <= pages || !window.isEmpty()) {
+                while (nextPage <= pages && window.size() < filePageWindow) {
+                    final int page = nextPage++;
+                    window.add(filePageExecutor.submit(() -> pageRequest.apply(page)));
+                }
+                if (!acceptFilePage(getFilePage(window.poll()), consumer)) {
+                    return;
+                }
             }
-            response = filesList().channel(channelId).count(count).page(response.getPaging().getPage() + 1).execute();
+        } finally {
+            window.forEach(future -> future.cancel(true));
         }
     }
 
+    private FilesListResponse getFilePage(final Future<FilesListResponse> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            throw new InterruptedRuntimeException(e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new SlackDataStoreException("Failed to get a page of files.list.", e.getCause());
+        }
+    }
+
+    private boolean acceptFilePage(final FilesListResponse response, final Consumer<File> consumer) {
+        if (!response.ok()) {
+            logger.warn("Slack API error occured on \"files.list\": {}", response.responseBody());
+            return false;
+        }
+        if (response.getFiles() != null) {
+            response.getFiles().forEach(consumer);
+        }
+        return true;
+    }
+
     /**
      * Retrieves all channels using default pagination.
      *
@@ -541,6 +1049,7 @@ public class SlackClient implements Closeable {
                 logger.warn("Slack API error occured on \"conversations.history\": {}", response.responseBody());
                 return;
             }
+            prefetch(response.getMessages());
             response.getMessages().forEach(consumer);
             if (!response.hasMore()) {
                 break;
@@ -577,6 +1086,7 @@ public class SlackClient implements Closeable {
                 return;
             }
             final List<Message> messages = response.getMessages();
+            prefetch(messages);
             for (int i = 1; i < messages.size(); i++) {
                 final Message message = messages.get(i);
                 if (message.isThreadBroadcast()) {
@@ -623,4 +1133,18 @@ public class SlackClient implements Closeable {
         }
     }
 
+
+    /**
+     * Reads the content of a downloaded file.
+     */
+    @FunctionalInterface
+    public interface FileStreamHandler {
+        /**
+         * Reads the content.
+         *
+         * @param in the stream of the content, which is closed by the caller
+         * @throws IOException if the content cannot be read
+         */
+        void accept(InputStream in) throws IOException;
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.lang.StringUtil;
+import org.codelibs.fess.entity.DataStoreParams;
+
+/**
+ * Shares one {@link SlackClient} per workspace token between concurrent crawls in the same JVM.
+ * The first crawl for a token creates the shared client (and pays for the users.list and
+ * conversations.list warm-up); later crawls get a view of it that shares the authentication,
+ * the user, bot and channel caches and the permalink templates, but keeps its own parameters
+ * such as channels and page sizes. Only crawls that agree on the settings the shared client is
+ * built from share it: the proxy, include_private, the cache sizes, the rate limits and the
+ * thread counts. The shared client is closed when the last view is closed.
+ */
+public class SlackClientRegistry {
+
+    private static final Logger logger = LogManager.getLogger(SlackClientRegistry.class);
+
+    /** Parameters the shared client is built from, which the crawls sharing it must agree on. */
+    protected static final List<String> SHARED_CLIENT_PARAMS = getSharedClientParams();
+
+    /** Shared clients keyed by token and client settings. */
+    protected final Map<String, Entry> entryMap = new HashMap<>();
+
+    /**
+     * Default constructor.
+     */
+    public SlackClientRegistry() {
+        // nothing
+    }
+
+    /**
+     * Returns a client for the token in the parameters, sharing the caches of any client that is
+     * already in use for the same token. The returned client must be closed to release it.
+     *
+     * @param paramMap the configuration parameters of the crawl
+     * @return the client for the crawl
+     */
+    public SlackClient acquire(final DataStoreParams paramMap) {
+        final String key = getKey(paramMap);
+        final Entry entry;
+        synchronized (entryMap) {
+            entry = entryMap.computeIfAbsent(key, k -> new Entry());
+            entry.refCount++;
+        }
+        try {
+            final SlackClient sharedClient = entry.getClient(() -> createClient(paramMap));
+            return new SlackClient(paramMap, sharedClient, () -> release(key, entry));
+        } catch (final RuntimeException e) {
+            release(key, entry);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of crawls currently using a shared client.
+     *
+     * @return the number of acquired clients
+     */
+    public int getActiveCount() {
+        synchronized (entryMap) {
+            return entryMap.values().stream().mapToInt(e -> e.refCount).sum();
+        }
+    }
+
+    /**
+     * Creates the shared client for a token.
+     *
+     * @param paramMap the configuration parameters of the first crawl for the token
+     * @return the new client
+     */
+    protected SlackClient createClient(final DataStoreParams paramMap) {
+        return new SlackClient(paramMap);
+    }
+
+    /**
+     * Builds the registry key from the token and the settings the shared client is built from.
+     *
+     * @param paramMap the configuration parameters
+     * @return the registry key
+     */
+    protected String getKey(final DataStoreParams paramMap) {
+        final StringBuilder buf = new StringBuilder(100);
+        for (final String name : SHARED_CLIENT_PARAMS) {
+            buf.append(paramMap.getAsString(name, StringUtil.EMPTY).trim()).append('\n');
+        }
+        return buf.toString();
+    }
+
+    private static List<String> getSharedClientParams() {
+        final List<String> names = new ArrayList<>();
+        names.add(SlackClient.TOKEN_PARAM);
+        names.add(SlackClient.PROXY_HOST_PARAM);
+        names.add(SlackClient.PROXY_PORT_PARAM);
+        // the warm-up fills the channel cache with the private channels
+        names.add(SlackClient.INCLUDE_PRIVATE_PARAM);
+        names.add(SlackClient.USER_CACHE_SIZE_PARAM);
+        names.add(SlackClient.BOT_CACHE_SIZE_PARAM);
+        names.add(SlackClient.CHANNEL_CACHE_SIZE_PARAM);
+        names.add(SlackClient.RATE_LIMIT_PARAM);
+        names.add(SlackClient.RATE_LIMIT_FILE_PARAM);
+        for (int tier = 1; tier <= 4; tier++) {
+            names.add(SlackClient.RATE_LIMIT_TIER_PARAM_PREFIX + tier);
+        }
+        names.add(SlackClient.PREFETCH_THREADS_PARAM);
+        names.add(SlackClient.FILE_PAGE_THREADS_PARAM);
+        return List.copyOf(names);
+    }
+
+    /**
+     * Releases one reference to a shared client and closes it when no crawl uses it anymore.
+     *
+     * @param key the registry key
+     * @param entry the registry entry
+     */
+    protected void release(final String key, final Entry entry) {
+        final boolean last;
+        synchronized (entryMap) {
+            entry.refCount--;
+            last = entry.refCount <= 0;
+            if (last && entryMap.get(key) == entry) {
+                entryMap.remove(key);
+            }
+        }
+        if (last) {
+            final SlackClient client = entry.client;
+            if (client != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Closing shared Slack client.");
+                }
+                client.close();
+            }
+        }
+    }
+
+    /**
+     * Registry entry holding a lazily created shared client and its reference count.
+     */
+    protected static class Entry {
+
+        /** The number of crawls using this entry; guarded by the registry map. */
+        protected int refCount;
+
+        /** The shared client, created by the first crawl. */
+        protected volatile SlackClient client;
+
+        /**
+         * Returns the shared client, creating it if needed. Concurrent crawls for the same token
+         * wait for the first one to finish the cache warm-up.
+         *
+         * @param factory the factory that creates the client
+         * @return the shared client
+         */
+        protected synchronized SlackClient getClient(final Supplier<SlackClient> factory) {
+            if (client == null) {
+                client = factory.get();
+            }
+            return client;
+        }
+    }
+}
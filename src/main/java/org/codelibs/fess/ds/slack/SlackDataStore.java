@@ -15,27 +15,35 @@
  */
 package org.codelibs.fess.ds.slack;
 
-import static java.util.Collections.EMPTY_LIST;
-
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.codelibs.core.exception.InterruptedRuntimeException;
 import org.codelibs.core.lang.StringUtil;
-import org.codelibs.curl.CurlResponse;
 import org.codelibs.fess.Constants;
 import org.codelibs.fess.app.service.FailureUrlService;
 import org.codelibs.fess.crawler.exception.CrawlingAccessException;
@@ -58,6 +66,8 @@ import org.codelibs.fess.helper.CrawlerStatsHelper.StatsKeyObject;
 import org.codelibs.fess.opensearch.config.exentity.DataConfig;
 import org.codelibs.fess.util.ComponentUtil;
 
+import com.google.common.cache.CacheStats;
+
 /**
  * Slack Data Store implementation that enables Fess to crawl and index Slack content
  * including channels, messages, and files. This data store connects to the Slack API
@@ -93,6 +103,29 @@ public class SlackDataStore extends AbstractDataStore {
 
     /** Default maximum file size for processing (10MB). */
     protected static final long DEFAULT_MAX_FILESIZE = 10000000L; // 10m
+    /** Default maximum number of seen identities kept in memory. */
+    protected static final long DEFAULT_DEDUP_MAX_ENTRIES = 1000000L;
+    /** Default interval between progress reports in milliseconds. */
+    protected static final long DEFAULT_PROGRESS_INTERVAL = 60000L;
+    /** Default number of failure URLs stored together; each failure URL is stored when it occurs by default. */
+    protected static final int DEFAULT_FAILURE_BATCH_SIZE = 1;
+    /** Default maximum number of failure URLs stored per crawl; every failure URL is stored by default. */
+    protected static final long DEFAULT_MAX_FAILURE_URLS = -1L;
+    /** Default largest file content kept in memory (1MB). */
+    protected static final long DEFAULT_DOWNLOAD_MEMORY_THRESHOLD = 1048576L; // 1m
+    /** Default number of attempts to resume a file download after a transient failure. */
+    protected static final long DEFAULT_DOWNLOAD_RETRIES = 3L;
+    /** Default maximum time in milliseconds of a file extraction. */
+    protected static final long DEFAULT_EXTRACTION_TIMEOUT = 120000L;
+    /** Default maximum heap of an extraction worker process. */
+    protected static final String DEFAULT_EXTRACTION_WORKER_HEAP = "512m";
+    /** Default number of jobs after which an extraction worker process is restarted. */
+    protected static final long DEFAULT_EXTRACTION_WORKER_MAX_JOBS = 1000L;
+    /** Default maximum size of the extraction cache (100MB). */
+    protected static final long DEFAULT_EXTRACTION_CACHE_SIZE = 104857600L; // 100m
+    /** Default MIME types of files indexed from their complete preview text. */
+    protected static final String DEFAULT_TEXT_FAST_PATH_MIMETYPES =
+            "text/*,application/json,application/xml,application/javascript,application/x-javascript,application/x-sh,application/x-yaml";
 
     // parameters
     /** Parameter name for ignoring errors during crawling. */
@@ -111,6 +144,115 @@ public class SlackDataStore extends AbstractDataStore {
     protected static final String MAX_FILESIZE = "max_filesize";
     /** Parameter name for enabling file crawling. */
     protected static final String FILE_CRAWL = "file_crawl";
+    /** Parameter name for the policy on channels a bot token is not a member of. */
+    protected static final String NON_MEMBER_CHANNELS = "non_member_channels";
+    /** Parameter name for skipping messages, threads and files already processed in the crawl. */
+    protected static final String DEDUP = "dedup";
+    /** Parameter name for the maximum number of seen identities kept in memory. */
+    protected static final String DEDUP_MAX_ENTRIES = "dedup_max_entries";
+    /** Parameter name for the directory seen identities are spilled to. */
+    protected static final String DEDUP_SPILL_DIR = "dedup_spill_dir";
+    /** Parameter name for rendering mrkdwn mentions, channel links, links and entities as plain text. */
+    protected static final String RENDER_MRKDWN = "render_mrkdwn";
+    /** Parameter name for the interval in milliseconds between progress reports. */
+    protected static final String PROGRESS_INTERVAL = "progress_interval";
+    /** Parameter name for logging one crawled URL out of every given number. */
+    protected static final String URL_LOG_SAMPLE = "url_log_sample";
+    /** Parameter name for the number of failure URLs stored together. */
+    protected static final String FAILURE_BATCH_SIZE = "failure_batch_size";
+    /** Parameter name for the maximum number of failure URLs stored per crawl. */
+    protected static final String MAX_FAILURE_URLS = "max_failure_urls";
+    /** Parameter name for the largest file content in bytes kept in memory. */
+    protected static final String DOWNLOAD_MEMORY_THRESHOLD = "download_memory_threshold";
+    /** Parameter name for the directory larger file contents are spilled to. */
+    protected static final String DOWNLOAD_SPILL_DIR = "download_spill_dir";
+    /** Parameter name for the number of concurrent file downloads. */
+    protected static final String DOWNLOAD_CONCURRENCY = "download_concurrency";
+    /** Parameter name for the number of file downloads waiting for a thread. */
+    protected static final String DOWNLOAD_QUEUE_SIZE = "download_queue_size";
+    /** Parameter name for the maximum total bytes per second of the file downloads, or 0 for no limit. */
+    protected static final String DOWNLOAD_BYTES_PER_SECOND = "download_bytes_per_second";
+    /** Parameter name for the number of attempts to resume a file download after a transient failure. */
+    protected static final String DOWNLOAD_RETRIES = "download_retries";
+    /** Parameter name for the number of threads extracting file contents. */
+    protected static final String EXTRACTION_THREADS = "extraction_threads";
+    /** Parameter name for the number of file extractions waiting for a thread. */
+    protected static final String EXTRACTION_QUEUE_SIZE = "extraction_queue_size";
+    /** Parameter name for the maximum time in milliseconds of a file extraction. */
+    protected static final String EXTRACTION_TIMEOUT = "extraction_timeout";
+    /** Parameter name for the number of child JVM processes extracting file contents, or 0 to extract in the crawler JVM. */
+    protected static final String EXTRACTION_WORKERS = "extraction_workers";
+    /** Parameter name for the maximum heap of an extraction worker process, such as 512m. */
+    protected static final String EXTRACTION_WORKER_HEAP = "extraction_worker_heap";
+    /** Parameter name for the number of jobs after which an extraction worker process is restarted. */
+    protected static final String EXTRACTION_WORKER_MAX_JOBS = "extraction_worker_max_jobs";
+    /** Parameter name for the classpath of the extraction worker processes. */
+    protected static final String EXTRACTION_WORKER_CLASSPATH = "extraction_worker_classpath";
+    /** Parameter name for the MIME types of files indexed from their complete preview text without downloading them. */
+    protected static final String TEXT_FAST_PATH_MIMETYPES = "text_fast_path_mimetypes";
+    /** Parameter name for the directory extracted file text is cached in across crawls. */
+    protected static final String EXTRACTION_CACHE_DIR = "extraction_cache_dir";
+    /** Parameter name for the maximum size in bytes of the extraction cache. */
+    protected static final String EXTRACTION_CACHE_SIZE = "extraction_cache_size";
+    /** Parameter name for the Slack file types or pretty types of the files to crawl. */
+    protected static final String INCLUDE_FILETYPES = "include_filetypes";
+    /** Parameter name for the Slack file types or pretty types of the files to skip. */
+    protected static final String EXCLUDE_FILETYPES = "exclude_filetypes";
+    /** Parameter name for the name extensions of the files to skip. */
+    protected static final String EXCLUDE_EXTENSIONS = "exclude_extensions";
+    /** Parameter name for the smallest size in bytes of the files to crawl. */
+    protected static final String MIN_FILESIZE = "min_filesize";
+    /** Parameter name for skipping files hosted outside of Slack. */
+    protected static final String SKIP_EXTERNAL_FILES = "skip_external_files";
+    /** Parameter name for where crawled files are listed from: files.list per channel or for the workspace, or the messages. */
+    protected static final String FILE_SOURCE = "file_source";
+
+    /** Config map key of the read-only parameter snapshot shared by all script contexts of a crawl. */
+    protected static final String SCRIPT_PARAMS = "script_params";
+
+    /** Key of the crawl progress reporter in the config map. */
+    protected static final String PROGRESS = "progress";
+
+    /** Key of the failure aggregator in the config map. */
+    protected static final String FAILURES = "failures";
+
+    /** Key of the file downloader in the config map. */
+    protected static final String DOWNLOADER = "downloader";
+
+    /** Key of the file download scheduler in the config map. */
+    protected static final String DOWNLOAD_SCHEDULER = "download_scheduler";
+
+    /** Key of the file extraction pool in the config map. */
+    protected static final String EXTRACTION_POOL = "extraction_pool";
+
+    /** Key of the extraction worker processes in the config map. */
+    protected static final String EXTRACTION_WORKER_POOL = "extraction_worker_pool";
+
+    /** Key of the file metadata prefilter in the config map. */
+    protected static final String FILE_PREFILTER = "file_prefilter";
+
+    /** Key of the extraction cache in the config map. */
+    protected static final String EXTRACTION_CACHE = "extraction_cache";
+
+    /** Key of the scripts compiled into field mappings in the config map. */
+    protected static final String SCRIPT_MAPPERS = "script_mappers";
+
+    /** Script type whose simple field references are compiled into field mappings. */
+    protected static final String GROOVY_SCRIPT_TYPE = "groovy";
+
+    /** Skips channels a bot token is not a member of. */
+    protected static final String NON_MEMBER_SKIP = "skip";
+    /** Joins public channels a bot token is not a member of. */
+    protected static final String NON_MEMBER_JOIN = "join";
+    /** Crawls channels a bot token is not a member of anyway. */
+    protected static final String NON_MEMBER_CRAWL = "crawl";
+
+    /** Lists the files of each channel with files.list after its messages. */
+    protected static final String FILE_SOURCE_CHANNEL = "channel";
+    /** Takes the files from the messages being crawled, without calling files.list. */
+    protected static final String FILE_SOURCE_MESSAGES = "messages";
+    /** Lists the files of the whole workspace with files.list once and routes them to the crawled channels. */
+    protected static final String FILE_SOURCE_WORKSPACE = "workspace";
 
     // scripts
     /** Script field name for message data. */
@@ -135,11 +277,23 @@ public class SlackDataStore extends AbstractDataStore {
     /** Name of the content extractor to use for file processing. */
     protected String extractorName = "tikaExtractor";
 
+    /** Registry sharing Slack clients between concurrent crawls with the same token. */
+    protected SlackClientRegistry clientRegistry = new SlackClientRegistry();
+
     @Override
     protected String getName() {
         return this.getClass().getSimpleName();
     }
 
+    /**
+     * Sets the registry that shares Slack clients between concurrent crawls.
+     *
+     * @param clientRegistry the client registry
+     */
+    public void setClientRegistry(final SlackClientRegistry clientRegistry) {
+        this.clientRegistry = clientRegistry;
+    }
+
     /**
      * Sets the name of the content extractor to use for file processing.
      *
@@ -154,26 +308,88 @@ public class SlackDataStore extends AbstractDataStore {
             final Map<String, String> scriptMap, final Map<String, Object> defaultDataMap) {
         final Map<String, Object> configMap = new HashMap<>();
         configMap.put(MAX_FILESIZE, getMaxFilesize(paramMap));
+        configMap.put(DOWNLOAD_RETRIES, getLongParameter(paramMap, DOWNLOAD_RETRIES, DEFAULT_DOWNLOAD_RETRIES));
         configMap.put(IGNORE_ERROR, isIgnoreError(paramMap));
-        configMap.put(SUPPORTED_MIMETYPES, getSupportedMimeTypes(paramMap));
+        configMap.put(SUPPORTED_MIMETYPES, new MimeTypeMatcher(getSupportedMimeTypes(paramMap)));
+        final List<String> textFastPathMimeTypes = getTextFastPathMimeTypes(paramMap);
+        if (!textFastPathMimeTypes.isEmpty()) {
+            configMap.put(TEXT_FAST_PATH_MIMETYPES, new MimeTypeMatcher(textFastPathMimeTypes));
+        }
         configMap.put(FILE_CRAWL, isFileCrawl(paramMap));
+        configMap.put(FILE_SOURCE, getFileSource(paramMap));
+        configMap.put(FILE_PREFILTER, newFilePrefilter(paramMap));
         configMap.put(URL_FILTER, getUrlFilter(paramMap));
-        if (logger.isDebugEnabled()) {
-            logger.debug("configMap: {}", configMap);
+        configMap.put(NON_MEMBER_CHANNELS, getNonMemberChannelsPolicy(paramMap));
+        configMap.put(SCRIPT_MAPPERS, compileScripts(paramMap, scriptMap));
+        final SeenSet seenSet = newSeenSet(paramMap);
+        if (seenSet != null) {
+            configMap.put(DEDUP, seenSet);
         }
-
-        final ExecutorService executorService = newFixedThreadPool(Integer.parseInt(paramMap.getAsString(NUMBER_OF_THREADS, "1")));
-        try (final SlackClient client = new SlackClient(paramMap)) {
+        final ExtractionCache extractionCache = newExtractionCache(paramMap);
+        if (extractionCache != null) {
+            configMap.put(EXTRACTION_CACHE, extractionCache);
+        }
+        configMap.put(SCRIPT_PARAMS, Collections.unmodifiableMap(new LinkedHashMap<>(paramMap.asMap())));
+
+        final int numberOfThreads = Integer.parseInt(paramMap.getAsString(NUMBER_OF_THREADS, "1"));
+        final DownloadScheduler downloadScheduler = newDownloadScheduler(paramMap, numberOfThreads);
+        configMap.put(DOWNLOAD_SCHEDULER, downloadScheduler);
+        configMap.put(DOWNLOADER, newFileDownloader(paramMap, Math.max(numberOfThreads, downloadScheduler.getConcurrency())));
+        final ExecutorService executorService = newFixedThreadPool(numberOfThreads);
+        final ExtractionPool extractionPool = newExtractionPool(paramMap);
+        configMap.put(EXTRACTION_POOL, extractionPool);
+        final ExtractionWorkerPool extractionWorkers = newExtractionWorkerPool(paramMap);
+        if (extractionWorkers != null) {
+            configMap.put(EXTRACTION_WORKER_POOL, extractionWorkers);
+        }
+        final FailureAggregator failures = newFailureAggregator(dataConfig, paramMap);
+        configMap.put(FAILURES, failures);
+        final CrawlProgressReporter progress = newProgressReporter(paramMap, executorService);
+        progress.addQueue("download", downloadScheduler::getQueueSize);
+        progress.addQueue("extraction", extractionPool::getQueueSize);
+        configMap.put(PROGRESS, progress);
+        try (final SlackClient client = clientRegistry.acquire(paramMap)) {
+            progress.countRequests(client::getRequestCount);
+            progress.addQueue("prefetch", client::getPrefetchQueueSize);
+            final Map<String, CacheStats> cacheStatsAtStart = client.getCacheStats();
             final Team team = client.getTeam();
-            final boolean fileCrawl = (Boolean) configMap.get(FILE_CRAWL);
+            if (isRenderMrkdwn(paramMap)) {
+                configMap.put(RENDER_MRKDWN, newMrkdwnRenderer(client));
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("configMap: {}", configMap);
+            }
+            final boolean channelFileCrawl = (Boolean) configMap.get(FILE_CRAWL) && FILE_SOURCE_CHANNEL.equals(configMap.get(FILE_SOURCE));
+            final String nonMemberPolicy = (String) configMap.get(NON_MEMBER_CHANNELS);
+            final AtomicInteger skippedChannels = new AtomicInteger();
+            // list the channels first so that the progress reports know how many are left
+            final List<Channel> channels = new ArrayList<>();
             client.getChannels(channel -> {
+                if (!isCrawlableChannel(client, channel, nonMemberPolicy)) {
+                    skippedChannels.incrementAndGet();
+                    return;
+                }
+                channels.add(channel);
+            });
+            progress.setTotalChannels(channels.size());
+            for (final Channel channel : channels) {
+                progress.channelStarted(channel);
                 processChannelMessages(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, executorService, client, team,
                         channel);
-                if (fileCrawl) {
+                if (channelFileCrawl) {
                     processChannelFiles(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, executorService, client, team,
                             channel);
                 }
-            });
+                progress.channelFinished(channel);
+            }
+            if ((Boolean) configMap.get(FILE_CRAWL) && FILE_SOURCE_WORKSPACE.equals(configMap.get(FILE_SOURCE))) {
+                processWorkspaceFiles(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, executorService, client, team,
+                        channels);
+            }
+
+            if (skippedChannels.get() > 0) {
+                logger.info("Skipped {} channels that the bot is not a member of.", skippedChannels.get());
+            }
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Shutting down thread executor.");
@@ -181,13 +397,305 @@ public class SlackDataStore extends AbstractDataStore {
 
             executorService.shutdown();
             executorService.awaitTermination(60, TimeUnit.SECONDS);
+            // a download trickling bytes within the idle timeout can run for hours, so the wait is bounded like the crawl threads
+            if (!downloadScheduler.awaitTermination(60, TimeUnit.SECONDS)) {
+                logger.warn("Stopped waiting for the file downloads after 60 seconds; {} were still queued.",
+                        downloadScheduler.getQueueSize());
+            }
+            // the extraction timeout only interrupts the parser, which may ignore it, so the wait is bounded too
+            if (!extractionPool.awaitTermination(60, TimeUnit.SECONDS)) {
+                logger.warn("Stopped waiting for the file extractions after 60 seconds; {} were still queued.",
+                        extractionPool.getQueueSize());
+            }
+
+            publishCacheStats(cacheStatsAtStart, client.getCacheStats());
         } catch (final InterruptedException e) {
             throw new InterruptedRuntimeException(e);
         } finally {
             executorService.shutdownNow();
+            downloadScheduler.close();
+            extractionPool.close();
+            if (extractionWorkers != null) {
+                extractionWorkers.close();
+            }
+            progress.close();
+            if (extractionCache != null) {
+                logger.info("Extraction cache: {} hits, {} misses, {} entries, {} bytes.", extractionCache.getHitCount(),
+                        extractionCache.getMissCount(), extractionCache.size(), extractionCache.getTotalBytes());
+            }
+            if (seenSet != null) {
+                if (seenSet.getDuplicateCount() > 0) {
+                    logger.info("Skipped {} duplicate messages, threads and files.", seenSet.getDuplicateCount());
+                }
+                seenSet.close();
+            }
+            failures.close();
+        }
+    }
+
+    /**
+     * Creates the scheduler of file downloads, with as many concurrent downloads as crawl threads and
+     * twice as many queued downloads by default.
+     *
+     * @param paramMap the configuration parameters
+     * @param numberOfThreads the number of crawl threads
+     * @return the download scheduler
+     */
+    protected DownloadScheduler newDownloadScheduler(final DataStoreParams paramMap, final int numberOfThreads) {
+        final int concurrency = (int) getLongParameter(paramMap, DOWNLOAD_CONCURRENCY, numberOfThreads);
+        return new DownloadScheduler(concurrency, (int) getLongParameter(paramMap, DOWNLOAD_QUEUE_SIZE, concurrency * 2L),
+                getLongParameter(paramMap, DOWNLOAD_BYTES_PER_SECOND, 0L));
+    }
+
+    /**
+     * Creates the downloader of file contents, which keeps a memory buffer per download thread for reuse.
+     *
+     * @param paramMap the configuration parameters
+     * @param numberOfThreads the number of download threads
+     * @return the file downloader
+     */
+    protected FileDownloader newFileDownloader(final DataStoreParams paramMap, final int numberOfThreads) {
+        final String spillDir = paramMap.getAsString(DOWNLOAD_SPILL_DIR);
+        return new FileDownloader((int) getLongParameter(paramMap, DOWNLOAD_MEMORY_THRESHOLD, DEFAULT_DOWNLOAD_MEMORY_THRESHOLD),
+                StringUtil.isNotBlank(spillDir) ? Paths.get(spillDir.trim()) : null, numberOfThreads);
+    }
+
+    /**
+     * Creates the pool extracting file contents, with a thread per available processor by default.
+     *
+     * @param paramMap the configuration parameters
+     * @return the extraction pool
+     */
+    protected ExtractionPool newExtractionPool(final DataStoreParams paramMap) {
+        final int threads = (int) getLongParameter(paramMap, EXTRACTION_THREADS, Runtime.getRuntime().availableProcessors());
+        return new ExtractionPool(threads, (int) getLongParameter(paramMap, EXTRACTION_QUEUE_SIZE, threads * 2L),
+                getLongParameter(paramMap, EXTRACTION_TIMEOUT, DEFAULT_EXTRACTION_TIMEOUT));
+    }
+
+    /**
+     * Creates the child JVM processes extracting file contents, which keep pathological files from
+     * exhausting the heap of the crawler. The jobs are limited by the extraction timeout, and their
+     * texts by the maximum file size.
+     *
+     * @param paramMap the configuration parameters
+     * @return the extraction worker pool, or null to extract in the crawler JVM
+     */
+    protected ExtractionWorkerPool newExtractionWorkerPool(final DataStoreParams paramMap) {
+        final int workers = (int) getLongParameter(paramMap, EXTRACTION_WORKERS, 0L);
+        if (workers <= 0) {
+            return null;
+        }
+        final String classpath = paramMap.getAsString(EXTRACTION_WORKER_CLASSPATH);
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + paramMap.getAsString(EXTRACTION_WORKER_HEAP, DEFAULT_EXTRACTION_WORKER_HEAP).trim());
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-Djava.awt.headless=true");
+        command.add("-cp");
+        command.add(StringUtil.isNotBlank(classpath) ? classpath.trim() : ExtractionWorkerPool.getDefaultClasspath());
+        command.add(ExtractionWorker.class.getName());
+        final String spillDir = paramMap.getAsString(DOWNLOAD_SPILL_DIR);
+        return new ExtractionWorkerPool(command, workers, getLongParameter(paramMap, EXTRACTION_TIMEOUT, DEFAULT_EXTRACTION_TIMEOUT),
+                (int) getLongParameter(paramMap, EXTRACTION_WORKER_MAX_JOBS, DEFAULT_EXTRACTION_WORKER_MAX_JOBS), getMaxFilesize(paramMap),
+                StringUtil.isNotBlank(spillDir) ? Paths.get(spillDir.trim()) : null);
+    }
+
+    /**
+     * Creates the cache of extracted file text kept across crawls.
+     *
+     * @param paramMap the configuration parameters
+     * @return the extraction cache, or null if no cache directory is configured
+     */
+    protected ExtractionCache newExtractionCache(final DataStoreParams paramMap) {
+        final String cacheDir = paramMap.getAsString(EXTRACTION_CACHE_DIR);
+        if (StringUtil.isBlank(cacheDir)) {
+            return null;
+        }
+        try {
+            return new ExtractionCache(Paths.get(cacheDir.trim()),
+                    getLongParameter(paramMap, EXTRACTION_CACHE_SIZE, DEFAULT_EXTRACTION_CACHE_SIZE));
+        } catch (final IOException e) {
+            throw new SlackDataStoreException("Failed to open the extraction cache in " + cacheDir, e);
+        }
+    }
+
+    /**
+     * Creates the aggregator of the documents that failed to be crawled, which stores their URLs to
+     * the {@link FailureUrlService}. The service stores one URL per call, so a batch size over 1 only
+     * defers the writes to the crawl thread that fills the batch; it does not reduce them.
+     *
+     * @param dataConfig the data configuration
+     * @param paramMap the configuration parameters
+     * @return the failure aggregator
+     */
+    protected FailureAggregator newFailureAggregator(final DataConfig dataConfig, final DataStoreParams paramMap) {
+        return new FailureAggregator((errorName, url, t) -> {
+            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
+            failureUrlService.store(dataConfig, errorName, url, t);
+        }, (int) getLongParameter(paramMap, FAILURE_BATCH_SIZE, DEFAULT_FAILURE_BATCH_SIZE),
+                getLongParameter(paramMap, MAX_FAILURE_URLS, DEFAULT_MAX_FAILURE_URLS));
+    }
+
+    /**
+     * Records a document that failed to be crawled to the failure aggregator of the crawl, or stores
+     * its URL to the {@link FailureUrlService} right away if there is none.
+     *
+     * @param dataConfig the data configuration
+     * @param configMap the configuration map
+     * @param channel the channel of the document
+     * @param errorName the name of the error class
+     * @param url the URL of the document
+     * @param t the failure
+     */
+    protected void recordFailure(final DataConfig dataConfig, final Map<String, Object> configMap, final Channel channel,
+            final String errorName, final String url, final Throwable t) {
+        if (configMap.get(FAILURES) instanceof FailureAggregator failures) {
+            failures.record(channel.getName(), errorName, url, t);
+        } else {
+            logger.warn("Crawling Access Exception at : {}", url, t);
+            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
+            failureUrlService.store(dataConfig, errorName, url, t);
+        }
+    }
+
+    /**
+     * Creates the reporter of the crawl progress, which reports the depth of the executor queue.
+     *
+     * @param paramMap the configuration parameters
+     * @param executorService the executor of the crawl workers
+     * @return the progress reporter
+     */
+    protected CrawlProgressReporter newProgressReporter(final DataStoreParams paramMap, final ExecutorService executorService) {
+        final CrawlProgressReporter progress = new CrawlProgressReporter(
+                getLongParameter(paramMap, PROGRESS_INTERVAL, DEFAULT_PROGRESS_INTERVAL), getLongParameter(paramMap, URL_LOG_SAMPLE, 0L));
+        if (executorService instanceof ThreadPoolExecutor threadPoolExecutor) {
+            progress.addQueue("executor", () -> threadPoolExecutor.getQueue().size());
+        }
+        return progress;
+    }
+
+    /**
+     * Logs a crawled URL at INFO if it is sampled by the progress reporter, and at DEBUG otherwise.
+     *
+     * @param configMap the configuration map
+     * @param url the crawled URL
+     */
+    protected void logCrawlingUrl(final Map<String, Object> configMap, final String url) {
+        if (configMap.get(PROGRESS) instanceof CrawlProgressReporter progress && progress.sampleUrl()) {
+            logger.info("Crawling URL: {}", url);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("Crawling URL: {}", url);
+        }
+    }
+
+    /**
+     * Counts a task queued for a channel as in flight in the progress report until it has run.
+     *
+     * @param configMap the configuration map
+     * @param channel the channel the task works for
+     * @param task the task
+     * @return the counted task, or the task itself if progress is not reported
+     */
+    protected Runnable trackProgress(final Map<String, Object> configMap, final Channel channel, final Runnable task) {
+        if (configMap.get(PROGRESS) instanceof CrawlProgressReporter progress) {
+            return progress.track(channel, task);
+        }
+        return task;
+    }
+
+    /**
+     * Creates the crawl-scoped set of processed identities, which keeps at most dedup_max_entries
+     * in memory and spills the rest to dedup_spill_dir, or stops recording them without one.
+     *
+     * @param paramMap the configuration parameters
+     * @return the seen set, or null if deduplication is disabled
+     */
+    protected SeenSet newSeenSet(final DataStoreParams paramMap) {
+        if (!Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(DEDUP, Constants.TRUE))) {
+            return null;
+        }
+        final String spillDir = paramMap.getAsString(DEDUP_SPILL_DIR);
+        return new SeenSet(getLongParameter(paramMap, DEDUP_MAX_ENTRIES, DEFAULT_DEDUP_MAX_ENTRIES),
+                StringUtil.isNotBlank(spillDir) ? Paths.get(spillDir.trim()) : null);
+    }
+
+    /**
+     * Marks an identity as processed in this crawl.
+     *
+     * @param configMap the configuration map
+     * @param key the identity from {@link SeenSet}
+     * @return true if the identity is new or deduplication is disabled, false for a duplicate
+     */
+    protected boolean markSeen(final Map<String, Object> configMap, final String key) {
+        if (configMap.get(DEDUP) instanceof SeenSet seenSet && !seenSet.add(key)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Skipped duplicate {}", key);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marks a message or thread as processed in this crawl, keyed by its channel and encoded timestamp.
+     *
+     * @param configMap the configuration map
+     * @param kind {@link SeenSet#MESSAGE} or {@link SeenSet#THREAD}
+     * @param channelId the channel ID
+     * @param ts the message or thread timestamp
+     * @return true if the message or thread is new or deduplication is disabled, false for a duplicate
+     */
+    protected boolean markSeen(final Map<String, Object> configMap, final char kind, final String channelId, final String ts) {
+        if (configMap.get(DEDUP) instanceof SeenSet seenSet) {
+            final long encodedTs = SlackTimestamp.parse(ts);
+            final boolean added = encodedTs != SlackTimestamp.INVALID ? seenSet.add(kind, channelId, encodedTs)
+                    : seenSet.add(kind == SeenSet.THREAD ? SeenSet.threadKey(channelId, ts) : SeenSet.messageKey(channelId, ts));
+            if (!added) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Skipped duplicate {} {} in {}", kind, ts, channelId);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a numeric parameter.
+     *
+     * @param paramMap the configuration parameters
+     * @param key the parameter name
+     * @param defaultValue the value used if the parameter is blank or invalid
+     * @return the parameter value
+     */
+    protected long getLongParameter(final DataStoreParams paramMap, final String key, final long defaultValue) {
+        final String value = paramMap.getAsString(key);
+        try {
+            return StringUtil.isNotBlank(value) ? Long.parseLong(value.trim()) : defaultValue;
+        } catch (final NumberFormatException e) {
+            return defaultValue;
         }
     }
 
+    /**
+     * Creates the prefilter deciding from the file metadata which files are downloaded.
+     *
+     * @param paramMap the configuration parameters
+     * @return the file prefilter
+     */
+    protected FilePrefilter newFilePrefilter(final DataStoreParams paramMap) {
+        return new FilePrefilter(getListParameter(paramMap, INCLUDE_FILETYPES), getListParameter(paramMap, EXCLUDE_FILETYPES),
+                getListParameter(paramMap, EXCLUDE_EXTENSIONS), getLongParameter(paramMap, MIN_FILESIZE, 0L),
+                Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(SKIP_EXTERNAL_FILES, Constants.TRUE)));
+    }
+
+    private List<String> getListParameter(final DataStoreParams paramMap, final String key) {
+        return Arrays.stream(StringUtil.split(paramMap.getAsString(key, StringUtil.EMPTY), ","))
+                .map(String::trim)
+                .filter(StringUtil::isNotEmpty)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Extracts the maximum file size configuration from parameters.
      *
@@ -219,6 +727,44 @@ public class SlackDataStore extends AbstractDataStore {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Gets the MIME types of files indexed from their complete preview text.
+     *
+     * @param paramMap the configuration parameters
+     * @return the MIME type patterns, empty if the text fast path is disabled
+     */
+    protected List<String> getTextFastPathMimeTypes(final DataStoreParams paramMap) {
+        return Arrays.stream(StringUtil.split(paramMap.getAsString(TEXT_FAST_PATH_MIMETYPES, DEFAULT_TEXT_FAST_PATH_MIMETYPES), ","))
+                .map(String::trim)
+                .filter(StringUtil::isNotEmpty)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the complete text of a text-like file from its metadata: the plain text of a post, or
+     * a preview that Slack reports as not truncated. Files with an incomplete preview are downloaded.
+     *
+     * @param configMap the configuration map
+     * @param file the file
+     * @return the complete text, or null if the file has to be downloaded
+     */
+    protected String getFilePreviewText(final Map<String, Object> configMap, final File file) {
+        if (!(configMap.get(TEXT_FAST_PATH_MIMETYPES) instanceof MimeTypeMatcher mimeTypeMatcher)
+                || !mimeTypeMatcher.matches(file.getMimetype())) {
+            return null;
+        }
+        if (StringUtil.isNotEmpty(file.getPlainText())) {
+            return file.getPlainText();
+        }
+        if (file.getPreview() == null) {
+            return null;
+        }
+        if (file.getPreviewIsTruncated() != null) {
+            return file.getPreviewIsTruncated() ? null : file.getPreview();
+        }
+        return file.getLinesMore() != null && file.getLinesMore() == 0 ? file.getPreview() : null;
+    }
+
     /**
      * Determines whether file crawling is enabled.
      *
@@ -229,6 +775,62 @@ public class SlackDataStore extends AbstractDataStore {
         return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(FILE_CRAWL, Constants.FALSE));
     }
 
+    /**
+     * Returns where crawled files are listed from: {@link #FILE_SOURCE_CHANNEL} makes a files.list
+     * pass per channel, {@link #FILE_SOURCE_WORKSPACE} a single files.list pass for the workspace,
+     * and {@link #FILE_SOURCE_MESSAGES} takes the files attached to the crawled messages and replies
+     * in the same pass.
+     *
+     * @param paramMap the configuration parameters
+     * @return the file source
+     */
+    protected String getFileSource(final DataStoreParams paramMap) {
+        final String value = paramMap.getAsString(FILE_SOURCE, FILE_SOURCE_CHANNEL).trim().toLowerCase(Locale.ROOT);
+        if (FILE_SOURCE_MESSAGES.equals(value) || FILE_SOURCE_WORKSPACE.equals(value)) {
+            return value;
+        }
+        return FILE_SOURCE_CHANNEL;
+    }
+
+    /**
+     * Returns the policy on channels a bot token is not a member of: skip, join or crawl.
+     *
+     * @param paramMap the configuration parameters
+     * @return the policy
+     */
+    protected String getNonMemberChannelsPolicy(final DataStoreParams paramMap) {
+        final String value = paramMap.getAsString(NON_MEMBER_CHANNELS, NON_MEMBER_SKIP).trim().toLowerCase(Locale.ROOT);
+        if (NON_MEMBER_JOIN.equals(value) || NON_MEMBER_CRAWL.equals(value)) {
+            return value;
+        }
+        return NON_MEMBER_SKIP;
+    }
+
+    /**
+     * Checks whether the history of a channel can be read before spending API calls on it.
+     * A bot token gets not_in_channel errors for channels it is not a member of, so those are
+     * skipped, or joined first if they are public and the policy is join.
+     *
+     * @param client the Slack client
+     * @param channel the channel to check
+     * @param nonMemberPolicy the policy on channels the bot is not a member of
+     * @return true if the channel should be crawled, false otherwise
+     */
+    protected boolean isCrawlableChannel(final SlackClient client, final Channel channel, final String nonMemberPolicy) {
+        if (channel.isMember() || NON_MEMBER_CRAWL.equals(nonMemberPolicy) || !client.isBotToken()) {
+            return true;
+        }
+        if (NON_MEMBER_JOIN.equals(nonMemberPolicy) && !channel.isPrivate() && !channel.isArchived()
+                && client.joinChannel(channel.getId())) {
+            logger.info("Joined #{} to crawl it.", channel.getName());
+            return true;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Skipped #{}: the bot is not a member of it.", channel.getName());
+        }
+        return false;
+    }
+
     /**
      * Creates and configures a URL filter based on include/exclude patterns.
      *
@@ -266,6 +868,40 @@ public class SlackDataStore extends AbstractDataStore {
                 new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
+    /**
+     * Logs the per-crawl statistics of the Slack client caches and records them to the crawler stats.
+     * Each cache hit is a users.info, bots.info or conversations.info call that did not have to be made.
+     *
+     * @param beforeStats the cache statistics taken when the crawl started
+     * @param afterStats the cache statistics taken when the crawl finished
+     */
+    protected void publishCacheStats(final Map<String, CacheStats> beforeStats, final Map<String, CacheStats> afterStats) {
+        final CrawlerStatsHelper crawlerStatsHelper = ComponentUtil.getCrawlerStatsHelper();
+        afterStats.forEach((name, after) -> {
+            final CacheStats before = beforeStats.get(name);
+            final CacheStats stats = before != null ? after.minus(before) : after;
+            final String summary = getCacheStatsSummary(stats);
+            logger.info("Slack {} cache: {}", name, summary);
+            final StatsKeyObject statsKey = new StatsKeyObject("slack-cache:" + name);
+            statsKey.setUrl("slack-cache://" + name + "?" + summary.replace(", ", "&"));
+            crawlerStatsHelper.begin(statsKey);
+            crawlerStatsHelper.record(statsKey, StatsAction.FINISHED);
+            crawlerStatsHelper.done(statsKey);
+        });
+    }
+
+    /**
+     * Formats cache statistics as comma-separated key=value pairs.
+     *
+     * @param stats the cache statistics
+     * @return the formatted statistics
+     */
+    protected String getCacheStatsSummary(final CacheStats stats) {
+        return String.format(Locale.ROOT, "requests=%d, hit_rate=%.4f, misses=%d, load_time=%dms, evictions=%d, api_calls_avoided=%d",
+                stats.requestCount(), stats.hitRate(), stats.missCount(), TimeUnit.NANOSECONDS.toMillis(stats.totalLoadTime()),
+                stats.evictionCount(), stats.hitCount());
+    }
+
     /**
      * Processes all messages in a channel, including threaded replies.
      *
@@ -285,13 +921,17 @@ public class SlackDataStore extends AbstractDataStore {
             final Map<String, Object> defaultDataMap, final ExecutorService executorService, final SlackClient client, final Team team,
             final Channel channel) {
         client.getChannelMessages(channel.getId(), message -> {
-            executorService.execute(() -> {
+            if (!markSeen(configMap, SeenSet.MESSAGE, channel.getId(), message.getTs())) {
+                return;
+            }
+            executorService.execute(trackProgress(configMap, channel, () -> {
                 processMessage(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, message);
-                if (message.getThreadTs() != null) {
+                processMessageFiles(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, message);
+                if (message.getThreadTs() != null && markSeen(configMap, SeenSet.THREAD, channel.getId(), message.getThreadTs())) {
                     processMessageReplies(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel,
                             message);
                 }
-            });
+            }));
         });
     }
 
@@ -313,10 +953,76 @@ public class SlackDataStore extends AbstractDataStore {
             final DataStoreParams paramMap, final Map<String, String> scriptMap, final Map<String, Object> defaultDataMap,
             final ExecutorService executorService, final SlackClient client, final Team team, final Channel channel) {
         client.getChannelFiles(channel.getId(), file -> {
-            executorService.execute(() -> {
+            if (!markSeen(configMap, SeenSet.fileKey(file.getId()))) {
+                return;
+            }
+            executorService.execute(trackProgress(configMap, channel, () -> {
                 processFile(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, file);
-            });
+            }));
+        });
+    }
+
+    /**
+     * Processes the files of the whole workspace, listed with a single files.list pass. Each file is
+     * processed in the first crawled channel it is shared in; files not shared in any crawled
+     * channel are skipped.
+     *
+     * @param dataConfig the data configuration
+     * @param callback the index update callback
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @param defaultDataMap the default data map
+     * @param executorService the executor service for parallel processing
+     * @param client the Slack client
+     * @param team the team information
+     * @param channels the crawled channels
+     */
+    protected void processWorkspaceFiles(final DataConfig dataConfig, final IndexUpdateCallback callback,
+            final Map<String, Object> configMap, final DataStoreParams paramMap, final Map<String, String> scriptMap,
+            final Map<String, Object> defaultDataMap, final ExecutorService executorService, final SlackClient client, final Team team,
+            final List<Channel> channels) {
+        final Map<String, Channel> channelMap = new HashMap<>();
+        channels.forEach(channel -> channelMap.put(channel.getId(), channel));
+        final AtomicLong outOfScopeFiles = new AtomicLong();
+        client.getWorkspaceFiles(file -> {
+            final Channel channel = getFileChannel(channelMap, file);
+            if (channel == null) {
+                outOfScopeFiles.incrementAndGet();
+                return;
+            }
+            if (!markSeen(configMap, SeenSet.fileKey(file.getId()))) {
+                return;
+            }
+            executorService.execute(trackProgress(configMap, channel, () -> {
+                processFile(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, file);
+            }));
         });
+        if (outOfScopeFiles.get() > 0L) {
+            logger.info("Skipped {} files not shared in the crawled channels.", outOfScopeFiles.get());
+        }
+    }
+
+    /**
+     * Returns the first crawled channel a file is shared in, public channels first.
+     *
+     * @param channelMap the crawled channels keyed by channel ID
+     * @param file the file
+     * @return the channel, or null if the file is not shared in a crawled channel
+     */
+    protected Channel getFileChannel(final Map<String, Channel> channelMap, final File file) {
+        for (final List<String> channelIds : Arrays.asList(file.getChannels(), file.getGroups())) {
+            if (channelIds == null) {
+                continue;
+            }
+            for (final String channelId : channelIds) {
+                final Channel channel = channelMap.get(channelId);
+                if (channel != null) {
+                    return channel;
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -338,12 +1044,17 @@ public class SlackDataStore extends AbstractDataStore {
             final Map<String, Object> defaultDataMap, final SlackClient client, final Team team, final Channel channel,
             final Message parentMessage) {
         client.getMessageReplies(channel.getId(), parentMessage.getThreadTs(), message -> {
+            if (!markSeen(configMap, SeenSet.MESSAGE, channel.getId(), message.getTs())) {
+                return;
+            }
             processMessage(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, message);
+            processMessageFiles(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, message);
         });
     }
 
     /**
-     * Processes a single message for indexing, extracting content and metadata.
+     * Processes the files attached to a message when files are taken from the messages. Deleted
+     * files and files hidden by the plan limits carry no content and are skipped.
      *
      * @param dataConfig the data configuration
      * @param callback the index update callback
@@ -354,34 +1065,63 @@ public class SlackDataStore extends AbstractDataStore {
      * @param client the Slack client
      * @param team the team information
      * @param channel the channel containing the message
-     * @param message the message to process
+     * @param message the message
      */
-    protected void processMessage(final DataConfig dataConfig, final IndexUpdateCallback callback, final Map<String, Object> configMap,
-            final DataStoreParams paramMap, final Map<String, String> scriptMap, final Map<String, Object> defaultDataMap,
-            final SlackClient client, final Team team, final Channel channel, final Message message) {
-        final CrawlerStatsHelper crawlerStatsHelper = ComponentUtil.getCrawlerStatsHelper();
-        final Map<String, Object> dataMap = new HashMap<>(defaultDataMap);
-        final String url = getMessagePermalink(client, team, channel, message);
-        final StatsKeyObject statsKey = new StatsKeyObject(url);
-        paramMap.put(Constants.CRAWLER_STATS_KEY, statsKey);
-        try {
-            crawlerStatsHelper.begin(statsKey);
-
-            final UrlFilter urlFilter = (UrlFilter) configMap.get(URL_FILTER);
+    protected void processMessageFiles(final DataConfig dataConfig, final IndexUpdateCallback callback,
+            final Map<String, Object> configMap, final DataStoreParams paramMap, final Map<String, String> scriptMap,
+            final Map<String, Object> defaultDataMap, final SlackClient client, final Team team, final Channel channel,
+            final Message message) {
+        if (message.getFiles() == null || !Boolean.TRUE.equals(configMap.get(FILE_CRAWL))
+                || !FILE_SOURCE_MESSAGES.equals(configMap.get(FILE_SOURCE))) {
+            return;
+        }
+        for (final File file : message.getFiles()) {
+            if (file.getId() == null || file.getPermalink() == null || "tombstone".equals(file.getMode())
+                    || "hidden_by_limit".equals(file.getMode()) || !markSeen(configMap, SeenSet.fileKey(file.getId()))) {
+                continue;
+            }
+            processFile(dataConfig, callback, configMap, paramMap, scriptMap, defaultDataMap, client, team, channel, file);
+        }
+    }
+
+    /**
+     * Processes a single message for indexing, extracting content and metadata.
+     *
+     * @param dataConfig the data configuration
+     * @param callback the index update callback
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @param defaultDataMap the default data map
+     * @param client the Slack client
+     * @param team the team information
+     * @param channel the channel containing the message
+     * @param message the message to process
+     */
+    protected void processMessage(final DataConfig dataConfig, final IndexUpdateCallback callback, final Map<String, Object> configMap,
+            final DataStoreParams paramMap, final Map<String, String> scriptMap, final Map<String, Object> defaultDataMap,
+            final SlackClient client, final Team team, final Channel channel, final Message message) {
+        final Map<String, Object> dataMap = new LayeredContextMap(defaultDataMap);
+        final String url = getMessagePermalink(client, team, channel, message);
+        final DocumentContext context = new DocumentContext(paramMap, url, ComponentUtil.getCrawlerStatsHelper());
+        try {
+            context.begin();
+
+            final UrlFilter urlFilter = (UrlFilter) configMap.get(URL_FILTER);
             if (urlFilter != null && !urlFilter.match(url)) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Not matched: {}", url);
                 }
-                crawlerStatsHelper.discard(statsKey);
+                context.discard();
                 return;
             }
 
-            logger.info("Crawling URL: {}", url);
+            logCrawlingUrl(configMap, url);
 
-            final Map<String, Object> resultMap = new LinkedHashMap<>(paramMap.asMap());
+            final Map<String, Object> resultMap = newScriptContext(configMap, paramMap);
             final Map<String, Object> messageMap = new HashMap<>();
 
-            final String messageText = getMessageText(message);
+            final String messageText = getMessageText(configMap, message);
             final String username = getMessageUsername(client, message);
             messageMap.put(MESSAGE_TITLE, StringUtil.EMPTY);
             messageMap.put(MESSAGE_TEXT, messageText);
@@ -393,66 +1133,34 @@ public class SlackDataStore extends AbstractDataStore {
             messageMap.put(MESSAGE_ATTACHMENTS, getMessageAttachmentsText(message));
             resultMap.put(MESSAGE, messageMap);
 
-            crawlerStatsHelper.record(statsKey, StatsAction.PREPARED);
+            context.record(StatsAction.PREPARED);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("messageMap: {}", messageMap);
             }
 
-            final String scriptType = getScriptType(paramMap);
-            for (final Map.Entry<String, String> entry : scriptMap.entrySet()) {
-                final Object convertValue = convertValue(scriptType, entry.getValue(), resultMap);
-                if (convertValue != null) {
-                    dataMap.put(entry.getKey(), convertValue);
-                }
-            }
+            evaluateScripts(configMap, paramMap, scriptMap, resultMap, dataMap);
 
-            crawlerStatsHelper.record(statsKey, StatsAction.EVALUATED);
+            context.record(StatsAction.EVALUATED);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("dataMap: {}", dataMap);
             }
 
-            if (dataMap.get("url") instanceof String statsUrl) {
-                statsKey.setUrl(statsUrl);
-            }
-
-            callback.store(paramMap, dataMap);
-            crawlerStatsHelper.record(statsKey, StatsAction.FINISHED);
-        } catch (final CrawlingAccessException e) {
-            logger.warn("Crawling Access Exception at : {}", dataMap, e);
-
-            Throwable target = e;
-            if (target instanceof MultipleCrawlingAccessException ex) {
-                final Throwable[] causes = ex.getCauses();
-                if (causes.length > 0) {
-                    target = causes[causes.length - 1];
-                }
-            }
-
-            String errorName;
-            final Throwable cause = target.getCause();
-            if (cause != null) {
-                errorName = cause.getClass().getCanonicalName();
-            } else {
-                errorName = target.getClass().getCanonicalName();
+            context.store(callback, dataMap);
+            if (configMap.get(PROGRESS) instanceof CrawlProgressReporter progress) {
+                progress.recordMessage(channel);
             }
-
-            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
-            failureUrlService.store(dataConfig, errorName, url, target);
-            crawlerStatsHelper.record(statsKey, StatsAction.ACCESS_EXCEPTION);
         } catch (final Throwable t) {
-            logger.warn("Crawling Access Exception at : {}", dataMap, t);
-            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
-            failureUrlService.store(dataConfig, t.getClass().getCanonicalName(), url, t);
-            crawlerStatsHelper.record(statsKey, StatsAction.EXCEPTION);
+            handleCrawlFailure(dataConfig, configMap, channel, url, dataMap, context, t);
         } finally {
-            crawlerStatsHelper.done(statsKey);
+            context.done();
         }
     }
 
     /**
-     * Processes a single file for indexing, extracting content and metadata.
+     * Processes a single file for indexing. The file is downloaded on the calling crawl worker and
+     * handed over to the extraction pool, which extracts its content and stores the document.
      *
      * @param dataConfig the data configuration
      * @param callback the index update callback
@@ -468,13 +1176,12 @@ public class SlackDataStore extends AbstractDataStore {
     protected void processFile(final DataConfig dataConfig, final IndexUpdateCallback callback, final Map<String, Object> configMap,
             final DataStoreParams paramMap, final Map<String, String> scriptMap, final Map<String, Object> defaultDataMap,
             final SlackClient client, final Team team, final Channel channel, final File file) {
-        final CrawlerStatsHelper crawlerStatsHelper = ComponentUtil.getCrawlerStatsHelper();
-        final Map<String, Object> dataMap = new HashMap<>(defaultDataMap);
+        final Map<String, Object> dataMap = new LayeredContextMap(defaultDataMap);
         final String url = file.getPermalink();
-        final StatsKeyObject statsKey = new StatsKeyObject(url);
-        paramMap.put(Constants.CRAWLER_STATS_KEY, statsKey);
+        final DocumentContext context = new DocumentContext(paramMap, url, ComponentUtil.getCrawlerStatsHelper());
+        boolean handedOver = false;
         try {
-            crawlerStatsHelper.begin(statsKey);
+            context.begin();
 
             final String mimeType = file.getMimetype();
             final UrlFilter urlFilter = (UrlFilter) configMap.get(URL_FILTER);
@@ -482,16 +1189,22 @@ public class SlackDataStore extends AbstractDataStore {
                 if (logger.isDebugEnabled()) {
                     logger.debug("Not matched: {}", url);
                 }
-                crawlerStatsHelper.discard(statsKey);
+                context.discard();
                 return;
             }
 
-            logger.info("Crawling URL: {}", url);
-
-            final boolean ignoreError = (Boolean) configMap.get(IGNORE_ERROR);
+            if (configMap.get(FILE_PREFILTER) instanceof FilePrefilter prefilter) {
+                final String reason = prefilter.reject(file);
+                if (reason != null) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Skipped {}: {}", url, reason);
+                    }
+                    context.discard();
+                    return;
+                }
+            }
 
-            final Map<String, Object> resultMap = new LinkedHashMap<>(paramMap.asMap());
-            final Map<String, Object> fileMap = new HashMap<>();
+            logCrawlingUrl(configMap, url);
 
             final long maxFilesize = (Long) configMap.get(MAX_FILESIZE);
             if (file.getSize() > maxFilesize) {
@@ -499,55 +1212,171 @@ public class SlackDataStore extends AbstractDataStore {
                         "The content length (" + file.getSize() + " byte) is over " + maxFilesize + " byte. The url is " + url);
             }
 
-            if (configMap.getOrDefault(SUPPORTED_MIMETYPES, EMPTY_LIST) instanceof List<?> supportedMimetypes
-                    && supportedMimetypes.stream().map(o -> o.toString()).noneMatch(mimeType::matches)) {
+            if (configMap.get(SUPPORTED_MIMETYPES) instanceof MimeTypeMatcher mimeTypeMatcher && !mimeTypeMatcher.matches(mimeType)) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("{} is not an indexing target.", mimeType);
                 }
-                crawlerStatsHelper.discard(statsKey);
+                context.discard();
                 return;
             }
 
-            final String fileContent = getFileContent(client, file, ignoreError);
+            final String username = getFileUsername(client, file);
+            final String previewText = getFilePreviewText(configMap, file);
+            if (previewText != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Indexing the preview of {} without downloading it.", url);
+                }
+                handedOver = true;
+                processFileContent(dataConfig, callback, configMap, paramMap, scriptMap, dataMap, context, channel, file, username,
+                        previewText, null);
+                return;
+            }
+            final String cachedText = getCachedFileText(configMap, file);
+            if (cachedText != null) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Indexing the cached text of {} without downloading it.", url);
+                }
+                handedOver = true;
+                processFileContent(dataConfig, callback, configMap, paramMap, scriptMap, dataMap, context, channel, file, username,
+                        cachedText, null);
+                return;
+            }
+            handedOver = true;
+            getDownloadScheduler(configMap).execute(file.getSize() != null ? file.getSize() : -1L,
+                    trackProgress(configMap, channel, () -> processFileDownload(dataConfig, callback, configMap, paramMap, scriptMap,
+                            dataMap, context, channel, client, file, username)));
+        } catch (final Throwable t) {
+            handleCrawlFailure(dataConfig, configMap, channel, url, dataMap, context, t);
+        } finally {
+            if (!handedOver) {
+                context.done();
+            }
+        }
+    }
+
+    /**
+     * Downloads a file and hands it over to the extraction pool. Runs on the download scheduler, and
+     * closes the document context if the file is not handed over.
+     *
+     * @param dataConfig the data configuration
+     * @param callback the index update callback
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @param dataMap the data map of the document
+     * @param context the document context
+     * @param channel the channel containing the file
+     * @param client the Slack client
+     * @param file the file
+     * @param username the name of the user who uploaded the file
+     */
+    protected void processFileDownload(final DataConfig dataConfig, final IndexUpdateCallback callback, final Map<String, Object> configMap,
+            final DataStoreParams paramMap, final Map<String, String> scriptMap, final Map<String, Object> dataMap,
+            final DocumentContext context, final Channel channel, final SlackClient client, final File file, final String username) {
+        boolean handedOver = false;
+        try {
+            final FileDownloader.Content content = downloadFileContent(configMap, client, file, (Boolean) configMap.get(IGNORE_ERROR));
+            handedOver = true;
+            getExtractionPool(configMap).execute(trackProgress(configMap, channel, () -> processFileContent(dataConfig, callback,
+                    configMap, paramMap, scriptMap, dataMap, context, channel, file, username, null, content)));
+        } catch (final Throwable t) {
+            handleCrawlFailure(dataConfig, configMap, channel, file.getPermalink(), dataMap, context, t);
+        } finally {
+            if (!handedOver) {
+                context.done();
+            }
+        }
+    }
+
+    /**
+     * Extracts the content of a downloaded file and stores its document. Runs on the extraction pool,
+     * or on the calling thread for a file indexed from its preview or cached text, and closes the downloaded
+     * content and the document context.
+     *
+     * @param dataConfig the data configuration
+     * @param callback the index update callback
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @param dataMap the data map of the document
+     * @param context the document context
+     * @param channel the channel containing the file
+     * @param file the file
+     * @param username the name of the user who uploaded the file
+     * @param fileText the text of the file from its metadata or the extraction cache, or null to extract the downloaded content
+     * @param content the downloaded content, or null if it was not downloaded
+     */
+    protected void processFileContent(final DataConfig dataConfig, final IndexUpdateCallback callback, final Map<String, Object> configMap,
+            final DataStoreParams paramMap, final Map<String, String> scriptMap, final Map<String, Object> dataMap,
+            final DocumentContext context, final Channel channel, final File file, final String username, final String fileText,
+            final FileDownloader.Content content) {
+        try {
+            final boolean ignoreError = (Boolean) configMap.get(IGNORE_ERROR);
+
+            final Map<String, Object> resultMap = newScriptContext(configMap, paramMap);
+            final Map<String, Object> fileMap = new HashMap<>();
+
+            final String fileContent = fileText != null ? fileText : extractFileContent(configMap, file, content, ignoreError);
             fileMap.put(MESSAGE_TITLE, file.getName() + " " + file.getTitle());
             fileMap.put(MESSAGE_TEXT, file.getName() + "\n" + fileContent);
             // fileMap.put(MESSAGE_TEAM, team.getName());
             fileMap.put(MESSAGE_TIMESTAMP, getFileTimestamp(file));
-            fileMap.put(MESSAGE_USER, getFileUsername(client, file));
+            fileMap.put(MESSAGE_USER, username);
             fileMap.put(MESSAGE_CHANNEL, channel.getName());
             fileMap.put(MESSAGE_PERMALINK, file.getPermalink());
             fileMap.put(MESSAGE_ATTACHMENTS, "");
             resultMap.put(MESSAGE, fileMap);
 
-            crawlerStatsHelper.record(statsKey, StatsAction.PREPARED);
+            context.record(StatsAction.PREPARED);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("fileMap: {}", fileMap);
             }
 
-            final String scriptType = getScriptType(paramMap);
-            for (final Map.Entry<String, String> entry : scriptMap.entrySet()) {
-                final Object convertValue = convertValue(scriptType, entry.getValue(), resultMap);
-                if (convertValue != null) {
-                    dataMap.put(entry.getKey(), convertValue);
-                }
-            }
+            evaluateScripts(configMap, paramMap, scriptMap, resultMap, dataMap);
 
-            crawlerStatsHelper.record(statsKey, StatsAction.EVALUATED);
+            context.record(StatsAction.EVALUATED);
 
             if (logger.isDebugEnabled()) {
                 logger.debug("dataMap: {}", dataMap);
             }
 
-            if (dataMap.get("url") instanceof String statsUrl) {
-                statsKey.setUrl(statsUrl);
+            context.store(callback, dataMap);
+            if (configMap.get(PROGRESS) instanceof CrawlProgressReporter progress) {
+                progress.recordFile(channel);
             }
-            callback.store(paramMap, dataMap);
-            crawlerStatsHelper.record(statsKey, StatsAction.FINISHED);
-        } catch (final CrawlingAccessException e) {
-            logger.warn("Crawling Access Exception at : {}", dataMap, e);
+        } catch (final Throwable t) {
+            handleCrawlFailure(dataConfig, configMap, channel, file.getPermalink(), dataMap, context, t);
+        } finally {
+            if (content != null) {
+                try {
+                    content.close();
+                } catch (final IOException e) {
+                    logger.warn("Failed to release the content of {}", file.getPermalink(), e);
+                }
+            }
+            context.done();
+        }
+    }
 
-            Throwable target = e;
+    /**
+     * Records a document that failed to be crawled, with the innermost cause of a crawling access exception.
+     *
+     * @param dataConfig the data configuration
+     * @param configMap the configuration map
+     * @param channel the channel of the document
+     * @param url the URL of the document
+     * @param dataMap the data map of the document
+     * @param context the document context
+     * @param t the failure
+     */
+    protected void handleCrawlFailure(final DataConfig dataConfig, final Map<String, Object> configMap, final Channel channel,
+            final String url, final Map<String, Object> dataMap, final DocumentContext context, final Throwable t) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Crawling Access Exception at : {}", dataMap, t);
+        }
+        if (t instanceof CrawlingAccessException) {
+            Throwable target = t;
             if (target instanceof MultipleCrawlingAccessException ex) {
                 final Throwable[] causes = ex.getCauses();
                 if (causes.length > 0) {
@@ -563,19 +1392,90 @@ public class SlackDataStore extends AbstractDataStore {
                 errorName = target.getClass().getCanonicalName();
             }
 
-            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
-            failureUrlService.store(dataConfig, errorName, url, target);
-            crawlerStatsHelper.record(statsKey, StatsAction.ACCESS_EXCEPTION);
-        } catch (final Throwable t) {
-            logger.warn("Crawling Access Exception at : {}", dataMap, t);
-            final FailureUrlService failureUrlService = ComponentUtil.getComponent(FailureUrlService.class);
-            failureUrlService.store(dataConfig, t.getClass().getCanonicalName(), url, t);
-            crawlerStatsHelper.record(statsKey, StatsAction.EXCEPTION);
-        } finally {
-            crawlerStatsHelper.done(statsKey);
+            recordFailure(dataConfig, configMap, channel, errorName, url, target);
+            context.record(StatsAction.ACCESS_EXCEPTION);
+        } else {
+            recordFailure(dataConfig, configMap, channel, t.getClass().getCanonicalName(), url, t);
+            context.record(StatsAction.EXCEPTION);
         }
     }
 
+    /**
+     * Compiles the scripts that only reference message fields or concatenate them with string literals,
+     * so that they are evaluated without the script engine for each document.
+     *
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @return the compiled scripts keyed by field name; scripts not in the map need the script engine
+     */
+    protected Map<String, ScriptFieldMapper> compileScripts(final DataStoreParams paramMap, final Map<String, String> scriptMap) {
+        final Map<String, ScriptFieldMapper> mapperMap = new HashMap<>();
+        if (!GROOVY_SCRIPT_TYPE.equals(getScriptType(paramMap))) {
+            return mapperMap;
+        }
+        final Set<String> fields = Set.of(MESSAGE_TITLE, MESSAGE_TEXT, MESSAGE_TIMESTAMP, MESSAGE_USER, MESSAGE_CHANNEL, MESSAGE_PERMALINK,
+                MESSAGE_ATTACHMENTS);
+        final Set<String> stringFields = Set.of(MESSAGE_TITLE, MESSAGE_TEXT, MESSAGE_USER, MESSAGE_CHANNEL, MESSAGE_PERMALINK,
+                MESSAGE_ATTACHMENTS);
+        for (final Map.Entry<String, String> entry : scriptMap.entrySet()) {
+            final ScriptFieldMapper mapper = ScriptFieldMapper.compile(entry.getValue(), MESSAGE, fields, stringFields);
+            if (mapper != null) {
+                mapperMap.put(entry.getKey(), mapper);
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Compiled {} of {} scripts into field mappings: {}", mapperMap.size(), scriptMap.size(), mapperMap.keySet());
+        }
+        return mapperMap;
+    }
+
+    /**
+     * Evaluates the scripts of a document into the data map, using the compiled field mappings where
+     * available and the script engine otherwise.
+     *
+     * @param configMap the configuration map
+     * @param paramMap the parameter map
+     * @param scriptMap the script map
+     * @param resultMap the script context
+     * @param dataMap the data map receiving the values
+     */
+    protected void evaluateScripts(final Map<String, Object> configMap, final DataStoreParams paramMap, final Map<String, String> scriptMap,
+            final Map<String, Object> resultMap, final Map<String, Object> dataMap) {
+        final Map<?, ?> mapperMap = configMap.get(SCRIPT_MAPPERS) instanceof Map<?, ?> m ? m : Collections.emptyMap();
+        String scriptType = null;
+        for (final Map.Entry<String, String> entry : scriptMap.entrySet()) {
+            final Object convertValue;
+            // a script that names a context entry resolves to that entry in convertValue
+            if (mapperMap.get(entry.getKey()) instanceof ScriptFieldMapper mapper && !resultMap.containsKey(entry.getValue())) {
+                convertValue = mapper.apply(resultMap);
+            } else {
+                if (scriptType == null) {
+                    scriptType = getScriptType(paramMap);
+                }
+                convertValue = convertValue(scriptType, entry.getValue(), resultMap);
+            }
+            if (convertValue != null) {
+                dataMap.put(entry.getKey(), convertValue);
+            }
+        }
+    }
+
+    /**
+     * Creates the script context of a document: a map layered over the parameter snapshot of the crawl,
+     * so that only the entries put for the document are allocated.
+     *
+     * @param configMap the configuration map
+     * @param paramMap the parameter map, copied only if the crawl has no parameter snapshot
+     * @return the script context
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> newScriptContext(final Map<String, Object> configMap, final DataStoreParams paramMap) {
+        if (configMap.get(SCRIPT_PARAMS) instanceof Map<?, ?> scriptParams) {
+            return new LayeredContextMap((Map<String, Object>) scriptParams);
+        }
+        return new LayeredContextMap(new LinkedHashMap<>(paramMap.asMap()));
+    }
+
     /**
      * Extracts the text content from a message.
      *
@@ -587,6 +1487,71 @@ public class SlackDataStore extends AbstractDataStore {
         return text != null ? text : "";
     }
 
+    /**
+     * Extracts the text content from a message, rendered as plain text if mrkdwn rendering is enabled.
+     *
+     * @param configMap the configuration map
+     * @param message the message to extract text from
+     * @return the message text or empty string if null
+     */
+    protected String getMessageText(final Map<String, Object> configMap, final Message message) {
+        if (configMap.get(RENDER_MRKDWN) instanceof MrkdwnRenderer renderer) {
+            return renderer.render(message.getText());
+        }
+        return getMessageText(message);
+    }
+
+    /**
+     * Determines whether mrkdwn in message text is rendered as plain text.
+     *
+     * @param paramMap the configuration parameters
+     * @return true if mrkdwn is rendered, false otherwise
+     */
+    protected boolean isRenderMrkdwn(final DataStoreParams paramMap) {
+        return Constants.TRUE.equalsIgnoreCase(paramMap.getAsString(RENDER_MRKDWN, Constants.TRUE));
+    }
+
+    /**
+     * Creates the mrkdwn renderer of a crawl, resolving mentions and channel links through the client caches.
+     *
+     * @param client the Slack client
+     * @return the renderer
+     */
+    protected MrkdwnRenderer newMrkdwnRenderer(final SlackClient client) {
+        return new MrkdwnRenderer(userId -> {
+            try {
+                final String name = getUsername(client, userId);
+                return StringUtil.isNotBlank(name) ? name : userId;
+            } catch (final RuntimeException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Failed to get a username of {}.", userId, e);
+                }
+                return userId;
+            }
+        }, channelId -> getChannelName(client, channelId));
+    }
+
+    /**
+     * Returns the name of a channel.
+     *
+     * @param client the Slack client
+     * @param channelId the channel ID
+     * @return the channel name, or the channel ID if it cannot be resolved
+     */
+    protected String getChannelName(final SlackClient client, final String channelId) {
+        try {
+            final Channel channel = client.getChannel(channelId);
+            if (channel != null && channel.getName() != null) {
+                return channel.getName();
+            }
+        } catch (final Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Failed to get a channel name of {}.", channelId, e);
+            }
+        }
+        return channelId;
+    }
+
     /**
      * Converts a message timestamp to a Date object.
      *
@@ -594,6 +1559,10 @@ public class SlackDataStore extends AbstractDataStore {
      * @return the timestamp as a Date object
      */
     protected Date getMessageTimestamp(final Message message) {
+        final long ts = SlackTimestamp.parse(message.getTs());
+        if (ts != SlackTimestamp.INVALID) {
+            return new Date(SlackTimestamp.toMillis(ts));
+        }
         return new Date(Math.round(Double.parseDouble(message.getTs()) * 1000));
     }
 
@@ -709,54 +1678,246 @@ public class SlackDataStore extends AbstractDataStore {
     public String getMessagePermalink(final SlackClient client, final Team team, final Channel channel, final Message message) {
         String permalink = message.getPermalink();
         if (permalink == null) {
-            if (team == null) {
-                permalink = client.getPermalink(channel.getId(), message.getTs());
+            if (team == null || StringUtil.isBlank(team.getDomain())) {
+                permalink = client.getPermalink(channel.getId(), message.getTs(), message.getThreadTs());
             } else {
-                permalink =
-                        "https://" + team.getDomain() + ".slack.com/archives/" + channel.getId() + "/p" + message.getTs().replace(".", "");
+                final StringBuilder buf = new StringBuilder(100).append("https://")
+                        .append(team.getDomain())
+                        .append(".slack.com/archives/")
+                        .append(channel.getId())
+                        .append("/p");
+                final long ts = SlackTimestamp.parse(message.getTs());
+                if (ts != SlackTimestamp.INVALID) {
+                    SlackTimestamp.appendPermalinkId(buf, ts);
+                } else {
+                    buf.append(message.getTs().replace(".", ""));
+                }
+                permalink = buf.toString();
             }
         }
         return permalink;
     }
 
     /**
-     * Downloads and extracts content from a Slack file.
+     * Returns the file downloader of the crawl, or a downloader with the default settings.
      *
+     * @param configMap the configuration map
+     * @return the file downloader
+     */
+    protected FileDownloader getFileDownloader(final Map<String, Object> configMap) {
+        if (configMap.get(DOWNLOADER) instanceof FileDownloader downloader) {
+            return downloader;
+        }
+        return new FileDownloader((int) DEFAULT_DOWNLOAD_MEMORY_THRESHOLD, null, 1);
+    }
+
+    /**
+     * Returns the file download scheduler of the crawl, or a scheduler downloading on the calling thread.
+     *
+     * @param configMap the configuration map
+     * @return the download scheduler
+     */
+    protected DownloadScheduler getDownloadScheduler(final Map<String, Object> configMap) {
+        if (configMap.get(DOWNLOAD_SCHEDULER) instanceof DownloadScheduler downloadScheduler) {
+            return downloadScheduler;
+        }
+        return new DownloadScheduler(0, 0, 0L);
+    }
+
+    /**
+     * Returns the file extraction pool of the crawl, or a pool extracting on the calling thread.
+     *
+     * @param configMap the configuration map
+     * @return the extraction pool
+     */
+    protected ExtractionPool getExtractionPool(final Map<String, Object> configMap) {
+        if (configMap.get(EXTRACTION_POOL) instanceof ExtractionPool extractionPool) {
+            return extractionPool;
+        }
+        return new ExtractionPool(0, 0, 0L);
+    }
+
+    /**
+     * Returns the text of a file extracted by an earlier crawl.
+     *
+     * @param configMap the configuration map
+     * @param file the file
+     * @return the cached text, or null if it is not cached
+     */
+    protected String getCachedFileText(final Map<String, Object> configMap, final File file) {
+        if (!(configMap.get(EXTRACTION_CACHE) instanceof ExtractionCache extractionCache) || !isCacheableFile(file)) {
+            return null;
+        }
+        return extractionCache.get(getExtractionCacheKey(configMap, file));
+    }
+
+    private boolean isCacheableFile(final File file) {
+        return file.getId() != null && file.getTimestamp() != null;
+    }
+
+    /**
+     * Returns the extraction cache key of a file, which tells the texts of the extractor in the crawler
+     * JVM from the texts of the extraction workers, which use plain Tika and cut the text at their
+     * length limit.
+     *
+     * @param configMap the configuration map
+     * @param file the file
+     * @return the key
+     */
+    protected String getExtractionCacheKey(final Map<String, Object> configMap, final File file) {
+        final String extraction = configMap.get(EXTRACTION_WORKER_POOL) instanceof ExtractionWorkerPool extractionWorkers
+                ? "worker:" + extractionWorkers.maxLength : extractorName;
+        return ExtractionCache.key(file.getId(), file.getTimestamp(), file.getSize(), extraction);
+    }
+
+    /**
+     * Downloads the content of a Slack file. The download is read up to the maximum file size,
+     * whatever size the file metadata claims. After a transient failure, such as a dropped connection
+     * or a 5xx status, the download is resumed from the bytes already read up to the download retries;
+     * a failure to write the spilled content is not retried.
+     *
+     * @param configMap the configuration map
      * @param client the Slack client for file download
-     * @param file the file to extract content from
-     * @param ignoreError whether to ignore extraction errors
-     * @return the extracted file content or empty string if extraction fails
+     * @param file the file to download
+     * @param ignoreError whether to ignore download errors
+     * @return the downloaded content, which must be closed, or null if there is no content
      */
-    protected String getFileContent(final SlackClient client, final File file, final boolean ignoreError) {
-        if (file.getPermalink() != null) {
-            final String mimeType = file.getMimetype().trim();
-            final String fileUrl = file.getUrlPrivateDownload();
-            try (final CurlResponse response = client.getFileResponse(fileUrl)) {
-                if (response.getHttpStatusCode() != 200) {
-                    throw new SlackDataStoreException(
-                            "HTTP Status " + response.getHttpStatusCode() + " : failed to get the file from " + fileUrl);
-                }
-                try (final InputStream in = response.getContentAsStream()) {
-                    return ComponentUtil.getExtractorFactory()
-                            .builder(in, null)
-                            .mimeType(mimeType)
-                            .extractorName(extractorName)
-                            .extract()
-                            .getContent();
-                }
-            } catch (final Exception e) {
-                if (!ignoreError && !ComponentUtil.getFessConfig().isCrawlerIgnoreContentException()) {
-                    throw new DataStoreCrawlingException(file.getPermalink(), "Failed to get contents: " + file.getName(), e);
+    protected FileDownloader.Content downloadFileContent(final Map<String, Object> configMap, final SlackClient client, final File file,
+            final boolean ignoreError) {
+        if (file.getPermalink() == null) {
+            return null;
+        }
+        final String fileUrl = file.getUrlPrivateDownload();
+        final long maxFilesize = configMap.get(MAX_FILESIZE) instanceof Long value ? value : DEFAULT_MAX_FILESIZE;
+        final long retries = configMap.get(DOWNLOAD_RETRIES) instanceof Long value ? value : DEFAULT_DOWNLOAD_RETRIES;
+        final DownloadScheduler downloadScheduler = getDownloadScheduler(configMap);
+        try (final FileDownloader.Download download = getFileDownloader(configMap).begin(maxFilesize, fileUrl,
+                file.getSize() != null ? file.getSize() : -1L)) {
+            for (int attempt = 0;; attempt++) {
+                final long offset = download.getLength();
+                try {
+                    client.downloadFile(fileUrl, offset, in -> download.append(downloadScheduler.throttle(in)));
+                    break;
+                } catch (final FileDownloader.SpillException e) {
+                    throw e;
+                } catch (final IOException e) {
+                    if (attempt >= retries) {
+                        throw e;
+                    }
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Resuming the download of {} at {} bytes: {}", fileUrl, download.getLength(), e.getMessage());
+                    }
+                } finally {
+                    if (configMap.get(PROGRESS) instanceof CrawlProgressReporter progress) {
+                        progress.recordDownload(download.getLength() - offset);
+                    }
                 }
-                if (logger.isDebugEnabled()) {
-                    logger.warn("Failed to get contents: {}", file.getName(), e);
-                } else {
-                    logger.warn("Failed to get contents: {}. {}", file.getName(), e.getMessage());
+                try {
+                    Thread.sleep(Math.min(10000L, 1000L << attempt));
+                } catch (final InterruptedException e) {
+                    throw new InterruptedRuntimeException(e);
                 }
-                return StringUtil.EMPTY;
             }
+            final FileDownloader.Content content = download.finish();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Downloaded {} bytes from {} in {}ms ({} bytes/s, spilled: {}).", content.getSize(), fileUrl,
+                        content.getElapsedMillis(), content.getBytesPerSecond(), content.isSpilled());
+            }
+            return content;
+        } catch (final MaxLengthExceededException | InterruptedRuntimeException e) {
+            throw e;
+        } catch (final Exception e) {
+            handleContentException(file, ignoreError, e);
+            return null;
+        }
+    }
+
+    /**
+     * Extracts the text of a downloaded file within the extraction timeout.
+     *
+     * @param configMap the configuration map
+     * @param file the file
+     * @param content the downloaded content, or null
+     * @param ignoreError whether to ignore extraction errors
+     * @return the extracted file content or empty string if extraction fails
+     */
+    protected String extractFileContent(final Map<String, Object> configMap, final File file, final FileDownloader.Content content,
+            final boolean ignoreError) {
+        if (content == null) {
+            return StringUtil.EMPTY;
+        }
+        final String mimeType = file.getMimetype().trim();
+        try {
+            final String text;
+            if (configMap.get(EXTRACTION_WORKER_POOL) instanceof ExtractionWorkerPool extractionWorkers) {
+                text = extractInWorker(configMap, extractionWorkers, content, mimeType);
+            } else {
+                text = getExtractionPool(configMap).extract(() -> {
+                    try (final InputStream in = content.getInputStream()) {
+                        return ComponentUtil.getExtractorFactory()
+                                .builder(in, null)
+                                .mimeType(mimeType)
+                                .extractorName(extractorName)
+                                .extract()
+                                .getContent();
+                    }
+                });
+            }
+            if (text != null && configMap.get(EXTRACTION_CACHE) instanceof ExtractionCache extractionCache
+                    && isCacheableFile(file)) {
+                extractionCache.put(getExtractionCacheKey(configMap, file), text);
+            }
+            return text;
+        } catch (final Exception e) {
+            handleContentException(file, ignoreError, e);
+            return StringUtil.EMPTY;
+        }
+    }
+
+    /**
+     * Extracts the text of a downloaded file in an extraction worker process. A content kept in
+     * memory is written to a temporary file for the worker first.
+     *
+     * @param configMap the configuration map
+     * @param extractionWorkers the extraction worker processes
+     * @param content the downloaded content
+     * @param mimeType the MIME type of the file
+     * @return the extracted text
+     * @throws IOException if the content cannot be written or the worker cannot be started
+     */
+    protected String extractInWorker(final Map<String, Object> configMap, final ExtractionWorkerPool extractionWorkers,
+            final FileDownloader.Content content, final String mimeType) throws IOException {
+        if (content.getPath() != null) {
+            return extractionWorkers.extract(content.getPath(), mimeType);
+        }
+        final Path path = getFileDownloader(configMap).createTempFile();
+        try {
+            try (final InputStream in = content.getInputStream()) {
+                Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return extractionWorkers.extract(path, mimeType);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Handles a failure to download or extract the content of a file: rethrows it unless content
+     * errors are ignored, in which case the file is indexed without its content.
+     *
+     * @param file the file
+     * @param ignoreError whether to ignore content errors
+     * @param e the failure
+     */
+    protected void handleContentException(final File file, final boolean ignoreError, final Exception e) {
+        if (!ignoreError && !ComponentUtil.getFessConfig().isCrawlerIgnoreContentException()) {
+            throw new DataStoreCrawlingException(file.getPermalink(), "Failed to get contents: " + file.getName(), e);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.warn("Failed to get contents: {}", file.getName(), e);
+        } else {
+            logger.warn("Failed to get contents: {}. {}", file.getName(), e.getMessage());
         }
-        return StringUtil.EMPTY;
     }
 
 }
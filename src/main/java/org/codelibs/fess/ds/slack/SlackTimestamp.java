@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+/**
+ * Slack message timestamps such as "1700000000.000100" encoded in a primitive long as
+ * seconds * 1,000,000 + microseconds. Encoded timestamps compare exactly with {@link Long#compare(long, long)}
+ * and are parsed and formatted without allocating intermediate objects.
+ */
+public final class SlackTimestamp {
+
+    /** Value returned for strings that are not canonical Slack timestamps. */
+    public static final long INVALID = -1L;
+
+    /** Number of fraction digits of a Slack timestamp. */
+    private static final int MICROS_DIGITS = 6;
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+
+    private SlackTimestamp() {
+    }
+
+    /**
+     * Parses a canonical Slack timestamp: decimal seconds, a dot and exactly six fraction digits.
+     *
+     * @param ts the timestamp string, may be null
+     * @return the encoded timestamp, or {@link #INVALID}
+     */
+    public static long parse(final CharSequence ts) {
+        if (ts == null) {
+            return INVALID;
+        }
+        final int length = ts.length();
+        final int dot = length - MICROS_DIGITS - 1;
+        if (dot < 1 || dot > 12 || ts.charAt(dot) != '.') {
+            return INVALID;
+        }
+        long seconds = 0L;
+        for (int i = 0; i < dot; i++) {
+            final int digit = ts.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            seconds = seconds * 10 + digit;
+        }
+        long micros = 0L;
+        for (int i = dot + 1; i < length; i++) {
+            final int digit = ts.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            micros = micros * 10 + digit;
+        }
+        return seconds * MICROS_PER_SECOND + micros;
+    }
+
+    /**
+     * Encodes seconds and microseconds.
+     *
+     * @param seconds the epoch seconds
+     * @param micros the microseconds from 0 to 999999
+     * @return the encoded timestamp
+     */
+    public static long of(final long seconds, final int micros) {
+        return seconds * MICROS_PER_SECOND + micros;
+    }
+
+    /**
+     * Returns the epoch seconds of an encoded timestamp.
+     *
+     * @param ts the encoded timestamp
+     * @return the epoch seconds
+     */
+    public static long seconds(final long ts) {
+        return ts / MICROS_PER_SECOND;
+    }
+
+    /**
+     * Returns the microseconds of an encoded timestamp.
+     *
+     * @param ts the encoded timestamp
+     * @return the microseconds from 0 to 999999
+     */
+    public static int micros(final long ts) {
+        return (int) (ts % MICROS_PER_SECOND);
+    }
+
+    /**
+     * Returns the epoch milliseconds of an encoded timestamp, rounded half up.
+     *
+     * @param ts the encoded timestamp
+     * @return the epoch milliseconds
+     */
+    public static long toMillis(final long ts) {
+        return (ts + 500L) / 1000L;
+    }
+
+    /**
+     * Appends an encoded timestamp in the Slack format, such as "1700000000.000100".
+     *
+     * @param buf the output
+     * @param ts the encoded timestamp
+     * @return the output
+     */
+    public static StringBuilder appendTo(final StringBuilder buf, final long ts) {
+        buf.append(seconds(ts)).append('.');
+        return appendMicros(buf, micros(ts));
+    }
+
+    /**
+     * Appends the message ID used in permalinks, the timestamp without its dot, such as "1700000000000100".
+     *
+     * @param buf the output
+     * @param ts the encoded timestamp
+     * @return the output
+     */
+    public static StringBuilder appendPermalinkId(final StringBuilder buf, final long ts) {
+        buf.append(seconds(ts));
+        return appendMicros(buf, micros(ts));
+    }
+
+    /**
+     * Formats an encoded timestamp in the Slack format.
+     *
+     * @param ts the encoded timestamp
+     * @return the timestamp string
+     */
+    public static String toString(final long ts) {
+        return appendTo(new StringBuilder(17), ts).toString();
+    }
+
+    private static StringBuilder appendMicros(final StringBuilder buf, final int micros) {
+        for (int divisor = 100_000; divisor > 0; divisor /= 10) {
+            buf.append((char) ('0' + micros / divisor % 10));
+        }
+        return buf;
+    }
+}
@@ -17,6 +17,7 @@ package org.codelibs.fess.ds.slack.api;
 
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handles authentication for Slack API requests including OAuth tokens and proxy configuration.
@@ -29,6 +30,12 @@ public class Authentication {
     /** HTTP proxy configuration for API requests. */
     protected Proxy httpProxy;
 
+    /** Rate limit budget drawn from before each API request, or null if not limited. */
+    protected RateLimitGovernor.Budget rateLimitBudget;
+
+    /** Number of API requests made with these credentials. */
+    protected final LongAdder requestCount = new LongAdder();
+
     /**
      * Creates a new Authentication instance with the specified OAuth token.
      *
@@ -66,4 +73,38 @@ public class Authentication {
         return httpProxy;
     }
 
+    /**
+     * Sets the rate limit budget drawn from before each API request.
+     *
+     * @param rateLimitBudget the rate limit budget, or null to disable rate limiting
+     */
+    public void setRateLimitBudget(final RateLimitGovernor.Budget rateLimitBudget) {
+        this.rateLimitBudget = rateLimitBudget;
+    }
+
+    /**
+     * Returns the rate limit budget drawn from before each API request.
+     *
+     * @return the rate limit budget, or null if not limited
+     */
+    public RateLimitGovernor.Budget getRateLimitBudget() {
+        return rateLimitBudget;
+    }
+
+    /**
+     * Counts an API request made with these credentials.
+     */
+    public void countRequest() {
+        requestCount.increment();
+    }
+
+    /**
+     * Returns the number of API requests made with these credentials.
+     *
+     * @return the number of API requests
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
 }
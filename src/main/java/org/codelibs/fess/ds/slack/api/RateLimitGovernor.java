@@ -0,0 +1,341 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.codelibs.core.exception.InterruptedRuntimeException;
+
+/**
+ * Process-wide governor of the Slack Web API rate limits. Slack applies its limits per app and
+ * workspace and per method tier, so every crawl that uses the same token draws from the same
+ * token bucket per tier instead of throttling on its own. Buckets live in this JVM by default;
+ * when a bucket file is configured, the bucket state is kept in a memory-mapped file guarded by
+ * file locks so that crawler processes on the same host divide the quota as well.
+ */
+public class RateLimitGovernor {
+
+    private static final Logger logger = LogManager.getLogger(RateLimitGovernor.class);
+
+    /** Default requests per minute of tiers 1 to 4. */
+    protected static final int[] DEFAULT_TIER_RATES = { 1, 20, 50, 100 };
+
+    /** Number of slots in a bucket file. */
+    protected static final int SLOT_COUNT = 1024;
+
+    /** Size of a bucket file slot: key hash, tokens and last refill time. */
+    protected static final int SLOT_SIZE = 24;
+
+    private static final RateLimitGovernor INSTANCE = new RateLimitGovernor();
+
+    /** In-JVM buckets keyed by token hash and tier. */
+    protected final Map<String, Bucket> localBucketMap = new ConcurrentHashMap<>();
+
+    /** Bucket files keyed by their absolute path. */
+    protected final Map<Path, BucketFile> bucketFileMap = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a governor. Use {@link #getInstance()} to share budgets in the JVM.
+     */
+    protected RateLimitGovernor() {
+        // nothing
+    }
+
+    /**
+     * Returns the governor shared by all crawls in this JVM.
+     *
+     * @return the governor
+     */
+    public static RateLimitGovernor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the default requests per minute of tiers 1 to 4.
+     *
+     * @return a new array of the default tier rates
+     */
+    public static int[] getDefaultTierRates() {
+        return DEFAULT_TIER_RATES.clone();
+    }
+
+    /**
+     * Returns the Slack rate limit tier of an API method.
+     *
+     * @param apiMethod the API method name, such as "conversations.history"
+     * @return the tier from 1 to 4
+     */
+    public static int getTier(final String apiMethod) {
+        if (apiMethod == null) {
+            return 3;
+        }
+        return switch (apiMethod) {
+        case "conversations.list", "users.list" -> 2;
+        case "users.info", "files.info", "chat.getPermalink" -> 4;
+        default -> 3;
+        };
+    }
+
+    /**
+     * Creates a budget for a token.
+     *
+     * @param token the OAuth token whose app and workspace share the limits
+     * @param tierRates the requests per minute of tiers 1 to 4, or null for the defaults
+     * @param bucketFile the bucket file shared with other processes, or null to share within this JVM only
+     * @return the budget
+     */
+    public Budget getBudget(final String token, final int[] tierRates, final Path bucketFile) {
+        final BucketFile file = bucketFile != null ? getBucketFile(bucketFile) : null;
+        return new Budget(hash(token), tierRates != null ? tierRates : DEFAULT_TIER_RATES, file);
+    }
+
+    /**
+     * Returns the open bucket file for a path, opening it on first use.
+     *
+     * @param path the bucket file path
+     * @return the bucket file, or null if it cannot be opened
+     */
+    protected BucketFile getBucketFile(final Path path) {
+        final Path key = path.toAbsolutePath().normalize();
+        final BucketFile bucketFile = bucketFileMap.computeIfAbsent(key, p -> {
+            try {
+                return new BucketFile(p);
+            } catch (final IOException e) {
+                logger.warn("Failed to open the rate limit file {}, limiting within this process only.", p, e);
+                return BucketFile.UNAVAILABLE;
+            }
+        });
+        return bucketFile == BucketFile.UNAVAILABLE ? null : bucketFile;
+    }
+
+    /**
+     * Hashes a token so that it is never stored in the clear.
+     *
+     * @param token the token
+     * @return a non-zero 64-bit hash of the token
+     */
+    protected static long hash(final String token) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            final long value = ByteBuffer.wrap(digest).getLong();
+            return value == 0L ? 1L : value;
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Refills a token bucket and takes one token if available.
+     *
+     * @param state the tokens and the last refill time in milliseconds
+     * @param perMinute the refill rate in tokens per minute
+     * @param now the current time in milliseconds
+     * @return 0 if a token was taken, otherwise the milliseconds to wait for the next token
+     */
+    protected static long take(final double[] state, final int perMinute, final long now) {
+        final double capacity = Math.max(1.0, perMinute / 10.0);
+        final long elapsed = Math.max(0L, now - (long) state[1]);
+        state[0] = Math.min(capacity, state[0] + elapsed * perMinute / 60000.0);
+        state[1] = now;
+        if (state[0] >= 1.0) {
+            state[0] -= 1.0;
+            return 0L;
+        }
+        return Math.max(1L, (long) Math.ceil((1.0 - state[0]) * 60000.0 / perMinute));
+    }
+
+    /**
+     * The rate limit budget of one token, bound to this governor.
+     */
+    public class Budget {
+
+        /** Hash of the token. */
+        protected final long tokenHash;
+
+        /** Requests per minute of tiers 1 to 4. */
+        protected final int[] tierRates;
+
+        /** Bucket file shared with other processes, or null. */
+        protected final BucketFile bucketFile;
+
+        /**
+         * Creates a budget.
+         *
+         * @param tokenHash the hash of the token
+         * @param tierRates the requests per minute of tiers 1 to 4
+         * @param bucketFile the bucket file, or null
+         */
+        protected Budget(final long tokenHash, final int[] tierRates, final BucketFile bucketFile) {
+            this.tokenHash = tokenHash;
+            this.tierRates = tierRates;
+            this.bucketFile = bucketFile;
+        }
+
+        /**
+         * Blocks until the budget allows one call of an API method.
+         *
+         * @param apiMethod the API method name
+         */
+        public void acquire(final String apiMethod) {
+            final int tier = getTier(apiMethod);
+            final int perMinute = Math.max(1, tierRates[tier - 1]);
+            long waitMillis;
+            while ((waitMillis = tryAcquire(tier, perMinute)) > 0L) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Waiting {}ms for the tier {} rate limit of {}.", waitMillis, tier, apiMethod);
+                }
+                try {
+                    Thread.sleep(waitMillis);
+                } catch (final InterruptedException e) {
+                    throw new InterruptedRuntimeException(e);
+                }
+            }
+        }
+
+        /**
+         * Tries to take one token of a tier.
+         *
+         * @param tier the tier
+         * @param perMinute the requests per minute of the tier
+         * @return 0 if a token was taken, otherwise the milliseconds to wait
+         */
+        protected long tryAcquire(final int tier, final int perMinute) {
+            final long slotKey = tokenHash * 31 + tier;
+            if (bucketFile != null) {
+                final long waitMillis = bucketFile.take(slotKey == 0L ? 1L : slotKey, perMinute);
+                if (waitMillis >= 0L) {
+                    return waitMillis;
+                }
+            }
+            return localBucketMap.computeIfAbsent(Long.toHexString(slotKey), k -> new Bucket(perMinute)).take(perMinute);
+        }
+    }
+
+    /**
+     * A token bucket within this JVM.
+     */
+    protected static class Bucket {
+
+        /** Available tokens and last refill time. */
+        protected final double[] state;
+
+        /**
+         * Creates a full bucket.
+         *
+         * @param perMinute the refill rate in tokens per minute
+         */
+        protected Bucket(final int perMinute) {
+            state = new double[] { Math.max(1.0, perMinute / 10.0), System.currentTimeMillis() };
+        }
+
+        /**
+         * Takes one token if available.
+         *
+         * @param perMinute the refill rate in tokens per minute
+         * @return 0 if a token was taken, otherwise the milliseconds to wait
+         */
+        protected synchronized long take(final int perMinute) {
+            return RateLimitGovernor.take(state, perMinute, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Token buckets kept in a memory-mapped file shared by processes on one host.
+     * Each slot stores the key hash, the available tokens and the last refill time;
+     * updates are serialized by a lock on the whole file.
+     */
+    protected static class BucketFile {
+
+        /** Marker for files that could not be opened. */
+        protected static final BucketFile UNAVAILABLE = new BucketFile();
+
+        /** The file channel used for locking. */
+        protected final FileChannel channel;
+
+        /** The mapped slots. */
+        protected final MappedByteBuffer buffer;
+
+        private BucketFile() {
+            channel = null;
+            buffer = null;
+        }
+
+        /**
+         * Opens or creates a bucket file.
+         *
+         * @param path the file path
+         * @throws IOException if the file cannot be opened or mapped
+         */
+        protected BucketFile(final Path path) throws IOException {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) SLOT_COUNT * SLOT_SIZE);
+        }
+
+        /**
+         * Takes one token from the bucket of a key.
+         *
+         * @param key the non-zero bucket key
+         * @param perMinute the refill rate in tokens per minute
+         * @return 0 if a token was taken, the milliseconds to wait, or -1 if the file cannot be used
+         */
+        protected synchronized long take(final long key, final int perMinute) {
+            try (FileLock lock = channel.lock()) {
+                final long now = System.currentTimeMillis();
+                final int start = (int) Math.floorMod(key, (long) SLOT_COUNT);
+                for (int i = 0; i < SLOT_COUNT; i++) {
+                    final int offset = ((start + i) % SLOT_COUNT) * SLOT_SIZE;
+                    final long slotKey = buffer.getLong(offset);
+                    if (slotKey != key && slotKey != 0L) {
+                        continue;
+                    }
+                    final double[] state;
+                    if (slotKey == 0L) {
+                        buffer.putLong(offset, key);
+                        state = new double[] { Math.max(1.0, perMinute / 10.0), now };
+                    } else {
+                        state = new double[] { buffer.getDouble(offset + 8), buffer.getLong(offset + 16) };
+                    }
+                    final long waitMillis = RateLimitGovernor.take(state, perMinute, now);
+                    buffer.putDouble(offset + 8, state[0]);
+                    buffer.putLong(offset + 16, (long) state[1]);
+                    return waitMillis;
+                }
+                logger.warn("No free slot in the rate limit file, limiting within this process only.");
+                return -1L;
+            } catch (final IOException e) {
+                logger.warn("Failed to lock the rate limit file, limiting within this process only.", e);
+                return -1L;
+            }
+        }
+    }
+}
@@ -86,13 +86,19 @@ public abstract class Request<T extends Response> {
 
     /**
      * Creates a configured HTTP request for the specified API method and path.
-     * Automatically adds authentication headers and proxy configuration.
+     * Automatically adds authentication headers and proxy configuration, and waits
+     * for the rate limit budget of the API method when one is configured.
      *
      * @param method the HTTP method function (GET, POST, PUT, DELETE)
      * @param path the API endpoint path to append to the base URL
      * @return a configured CurlRequest ready for execution
      */
     public CurlRequest getCurlRequest(final Function<String, CurlRequest> method, final String path) {
+        final RateLimitGovernor.Budget rateLimitBudget = authentication.getRateLimitBudget();
+        if (rateLimitBudget != null) {
+            rateLimitBudget.acquire(path);
+        }
+        authentication.countRequest();
         final StringBuilder buf = new StringBuilder(100);
         buf.append(SLACK_API_ENDPOINT);
         if (path != null) {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack.api.method.conversations;
+
+import org.codelibs.curl.CurlRequest;
+import org.codelibs.fess.ds.slack.api.Authentication;
+import org.codelibs.fess.ds.slack.api.Request;
+
+/**
+ * Request class for joining a public Slack channel.
+ * Implements the conversations.join Slack Web API method so that a bot
+ * token can read the history of a channel it is not a member of yet.
+ */
+public class ConversationsJoinRequest extends Request<ConversationsJoinResponse> {
+
+    /** The channel ID to join */
+    protected final String channel;
+
+    /**
+     * Constructs a new conversations join request.
+     *
+     * @param authentication the authentication credentials for API access
+     * @param channel the channel ID to join
+     */
+    public ConversationsJoinRequest(final Authentication authentication, final String channel) {
+        super(authentication);
+        this.channel = channel;
+    }
+
+    /**
+     * Executes the conversations.join API request.
+     *
+     * @return the response containing the joined channel
+     */
+    @Override
+    public ConversationsJoinResponse execute() {
+        return parseResponse(request().execute().getContentAsString(), ConversationsJoinResponse.class);
+    }
+
+    /**
+     * Builds the HTTP request with all configured parameters.
+     *
+     * @return the configured HTTP request
+     */
+    private CurlRequest request() {
+        final CurlRequest request = getCurlRequest(POST, "conversations.join");
+        if (channel != null) {
+            request.param("channel", channel);
+        }
+        return request;
+    }
+
+}
@@ -18,6 +18,7 @@ package org.codelibs.fess.ds.slack.api.type;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
@@ -39,11 +40,17 @@ public class Channel {
     /** Display name of the channel. */
     protected String name;
     /** Whether this is a channel (as opposed to a direct message). */
+    @JsonProperty("is_channel")
     protected Boolean isChannel;
     /** Whether the channel has been archived. */
+    @JsonProperty("is_archived")
     protected Boolean isArchived;
     /** Whether the channel is private. */
+    @JsonProperty("is_private")
     protected Boolean isPrivate;
+    /** Whether the calling user or bot is a member of the channel. */
+    @JsonProperty("is_member")
+    protected Boolean isMember;
 
     /** List of member user IDs in the channel. */
     protected List<String> members;
@@ -93,6 +100,15 @@ public class Channel {
         return isPrivate == null ? false : isPrivate;
     }
 
+    /**
+     * Returns whether the calling user or bot is a member of this channel.
+     *
+     * @return true if the caller is a member, false otherwise
+     */
+    public boolean isMember() {
+        return isMember == null ? false : isMember;
+    }
+
     /**
      * Returns the list of member user IDs in this channel.
      *
@@ -15,6 +15,8 @@
  */
 package org.codelibs.fess.ds.slack.api.type;
 
+import java.util.List;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
@@ -82,6 +84,37 @@ public class File {
     @JsonProperty("preview_highlight")
     protected String previewHighlight;
 
+    /** Whether the preview is cut off before the end of the file */
+    protected Boolean previewIsTruncated;
+
+    /** Number of lines of the file */
+    protected Integer lines;
+
+    /** Number of lines of the file not in the preview */
+    protected Integer linesMore;
+
+    /** Plain text body of a post */
+    protected String plainText;
+
+    /** Hosting mode of the file, such as hosted, external, snippet, post, tombstone or hidden_by_limit */
+    protected String mode;
+
+    /** IDs of the public channels the file is shared in */
+    protected List<String> channels;
+
+    /** IDs of the private channels the file is shared in */
+    protected List<String> groups;
+
+    /** Slack file type code, such as pdf, docx or gdoc */
+    protected String filetype;
+
+    /** Human-readable file type, such as PDF or Google Docs */
+    protected String prettyType;
+
+    /** Whether the file is hosted outside of Slack */
+    @JsonProperty("is_external")
+    protected Boolean isExternal;
+
     /**
      * Gets the unique identifier for the file.
      *
@@ -217,4 +250,94 @@ public class File {
         return previewHighlight;
     }
 
+    /**
+     * Gets whether the preview is cut off before the end of the file.
+     *
+     * @return true if the preview is truncated, or null if unknown
+     */
+    public Boolean getPreviewIsTruncated() {
+        return previewIsTruncated;
+    }
+
+    /**
+     * Gets the number of lines of the file.
+     *
+     * @return the number of lines, or null if unknown
+     */
+    public Integer getLines() {
+        return lines;
+    }
+
+    /**
+     * Gets the number of lines of the file not in the preview.
+     *
+     * @return the number of lines not in the preview, or null if unknown
+     */
+    public Integer getLinesMore() {
+        return linesMore;
+    }
+
+    /**
+     * Gets the plain text body of a post.
+     *
+     * @return the plain text, or null if the file is not a post
+     */
+    public String getPlainText() {
+        return plainText;
+    }
+
+    /**
+     * Gets the hosting mode of the file.
+     *
+     * @return the mode, such as tombstone for a deleted file
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the IDs of the public channels the file is shared in.
+     *
+     * @return the channel IDs
+     */
+    public List<String> getChannels() {
+        return channels;
+    }
+
+    /**
+     * Gets the IDs of the private channels the file is shared in.
+     *
+     * @return the channel IDs
+     */
+    public List<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Gets the Slack file type code.
+     *
+     * @return the file type, such as pdf
+     */
+    public String getFiletype() {
+        return filetype;
+    }
+
+    /**
+     * Gets the human-readable file type.
+     *
+     * @return the pretty type, such as PDF
+     */
+    public String getPrettyType() {
+        return prettyType;
+    }
+
+    /**
+     * Returns whether the file is hosted outside of Slack, such as a Google Drive document or a remote file.
+     *
+     * @return true if the file is external, false otherwise
+     */
+    public boolean isExternal() {
+        return isExternal == null ? false : isExternal;
+    }
+
 }
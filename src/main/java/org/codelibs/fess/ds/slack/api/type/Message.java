@@ -18,6 +18,7 @@ package org.codelibs.fess.ds.slack.api.type;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
@@ -28,6 +29,9 @@ import com.fasterxml.jackson.databind.annotation.JsonNaming;
 @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
 public class Message {
 
+    /** Subtype of replies that were also sent to the channel. */
+    protected static final String THREAD_BROADCAST_SUBTYPE = "thread_broadcast";
+
     /**
      * Default constructor.
      */
@@ -53,6 +57,7 @@ public class Message {
     /** List of files attached to the message. */
     protected List<File> files;
     /** Whether this message was broadcast from a thread to the channel. */
+    @JsonProperty("is_thread_broadcast")
     protected Boolean isThreadBroadcast;
     /** Comment associated with a file share. */
     protected Comment comment;
@@ -146,7 +151,10 @@ public class Message {
      * @return true if broadcast from thread, false otherwise
      */
     public boolean isThreadBroadcast() {
-        return isThreadBroadcast != null ? isThreadBroadcast : false;
+        if (isThreadBroadcast != null) {
+            return isThreadBroadcast;
+        }
+        return THREAD_BROADCAST_SUBTYPE.equals(subtype);
     }
 
     /**
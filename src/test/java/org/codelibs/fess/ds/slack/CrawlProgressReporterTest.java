@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codelibs.fess.ds.slack.api.type.Channel;
+
+public class CrawlProgressReporterTest extends UnitDsTestCase {
+
+    private static Channel newChannel(final String channelId, final String channelName) {
+        return new Channel() {
+            {
+                id = channelId;
+                name = channelName;
+            }
+        };
+    }
+
+    public void test_buildReport() {
+        try (CrawlProgressReporter progress = new CrawlProgressReporter(0L, 0L)) {
+            final AtomicLong requests = new AtomicLong(100L);
+            progress.countRequests(requests::get);
+            progress.addQueue("executor", () -> 3);
+            progress.setTotalChannels(4);
+            final Channel general = newChannel("C1", "general");
+            final Channel random = newChannel("C2", "random");
+            progress.channelStarted(general);
+            for (int i = 0; i < 10; i++) {
+                progress.recordMessage(general);
+            }
+            progress.recordFile(general);
+            progress.recordDownload(3000L);
+            progress.channelFinished(general);
+            progress.channelStarted(random);
+            progress.recordMessage(random);
+            requests.addAndGet(20L);
+
+            final List<String> lines = progress.buildReport(progress.startNanos + TimeUnit.SECONDS.toNanos(2));
+            assertEquals(2, lines.size());
+            assertEquals("Crawl progress: 1/4 channels, 11 messages (5.5/s), 1 files (0.5/s), 3000 bytes downloaded (1500.0/s), 20 API calls (10.0/s), queues: executor=3,"
+                    + " ETA 0:00:06", lines.get(0));
+            assertEquals("  #random: 1 messages (0.5/s), 0 files (0.0/s)", lines.get(1));
+
+            // rates are per report interval
+            final List<String> next = progress.buildReport(progress.startNanos + TimeUnit.SECONDS.toNanos(3));
+            assertTrue(next.get(0), next.get(0).startsWith("Crawl progress: 1/4 channels, 11 messages (0.0/s)"));
+            assertEquals(11L, progress.getMessageCount());
+            assertEquals(1L, progress.getFileCount());
+        }
+    }
+
+    public void test_track() {
+        try (CrawlProgressReporter progress = new CrawlProgressReporter(0L, 0L)) {
+            progress.setTotalChannels(2);
+            final Channel general = newChannel("C1", "general");
+            progress.channelStarted(general);
+            final Runnable message = progress.track(general, () -> progress.recordMessage(general));
+            final Runnable file = progress.track(general, () -> progress.recordFile(general));
+            progress.channelFinished(general);
+
+            // listed, but its work is still queued
+            List<String> lines = progress.buildReport(progress.startNanos + TimeUnit.SECONDS.toNanos(1));
+            assertTrue(lines.get(0), lines.get(0).startsWith("Crawl progress: 0/2 channels"));
+            assertEquals(2, lines.size());
+            message.run();
+            file.run();
+            assertEquals(1, progress.finishedChannels.get());
+            assertTrue(progress.channels.isEmpty());
+
+            // work queued after the channel was crawled, e.g. workspace files
+            final Runnable workspaceFile = progress.track(general, () -> progress.recordFile(general));
+            lines = progress.buildReport(progress.startNanos + TimeUnit.SECONDS.toNanos(2));
+            assertEquals("  #general: 0 messages (0.0/s), 0 files (0.0/s)", lines.get(1));
+            workspaceFile.run();
+            assertEquals(1, progress.finishedChannels.get());
+            assertTrue(progress.channels.isEmpty());
+            assertEquals(2L, progress.getFileCount());
+
+            // a failing task is released as well
+            final Channel random = newChannel("C2", "random");
+            progress.channelStarted(random);
+            final Runnable failing = progress.track(random, () -> {
+                throw new IllegalStateException("test");
+            });
+            progress.channelFinished(random);
+            try {
+                failing.run();
+                fail("IllegalStateException expected");
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+            assertEquals(2, progress.finishedChannels.get());
+            assertTrue(progress.channels.isEmpty());
+        }
+    }
+
+    public void test_unknownEta() {
+        try (CrawlProgressReporter progress = new CrawlProgressReporter(0L, 0L)) {
+            final String line = progress.buildReport(progress.startNanos + TimeUnit.SECONDS.toNanos(1)).get(0);
+            assertTrue(line, line.startsWith("Crawl progress: 0/? channels"));
+            assertTrue(line, line.endsWith("ETA unknown"));
+            assertEquals(-1L, progress.estimateRemainingMillis(System.nanoTime(), 0, 10));
+        }
+    }
+
+    public void test_sampleUrl() {
+        try (CrawlProgressReporter progress = new CrawlProgressReporter(0L, 0L)) {
+            assertFalse(progress.sampleUrl());
+        }
+        try (CrawlProgressReporter progress = new CrawlProgressReporter(0L, 1L)) {
+            assertTrue(progress.sampleUrl());
+            assertTrue(progress.sampleUrl());
+        }
+        try (CrawlProgressReporter progress = new CrawlProgressReporter(0L, 3L)) {
+            int sampled = 0;
+            for (int i = 0; i < 9; i++) {
+                if (progress.sampleUrl()) {
+                    sampled++;
+                }
+            }
+            assertEquals(3, sampled);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.fess.Constants;
+import org.codelibs.fess.ds.callback.IndexUpdateCallback;
+import org.codelibs.fess.entity.DataStoreParams;
+import org.codelibs.fess.helper.CrawlerStatsHelper;
+import org.codelibs.fess.helper.CrawlerStatsHelper.StatsAction;
+
+public class DocumentContextTest extends UnitDsTestCase {
+
+    public void test_paramMapIsolation() {
+        final DataStoreParams crawlParamMap = new DataStoreParams();
+        crawlParamMap.put("token", "xoxb-test");
+        final CrawlerStatsHelper crawlerStatsHelper = new CrawlerStatsHelper();
+
+        final DocumentContext context1 = new DocumentContext(crawlParamMap, "url1", crawlerStatsHelper);
+        final DocumentContext context2 = new DocumentContext(crawlParamMap, "url2", crawlerStatsHelper);
+
+        assertFalse(crawlParamMap.containsKey(Constants.CRAWLER_STATS_KEY));
+        assertSame(context1.getStatsKey(), context1.getParamMap().get(Constants.CRAWLER_STATS_KEY));
+        assertSame(context2.getStatsKey(), context2.getParamMap().get(Constants.CRAWLER_STATS_KEY));
+        assertNotSame(context1.getStatsKey(), context2.getStatsKey());
+        assertEquals("xoxb-test", context1.getParamMap().getAsString("token"));
+        assertEquals("none", context1.getParamMap().getAsString("missing", "none"));
+        assertTrue(context1.getParamMap().containsKey("token"));
+        assertEquals(2, context1.getParamMap().asMap().size());
+        // the crawl parameters are read through, not copied
+        crawlParamMap.put("channels", "general");
+        assertEquals("general", context1.getParamMap().getAsString("channels"));
+        final DataStoreParams copy = context1.getParamMap().newInstance();
+        assertSame(context1.getStatsKey(), copy.get(Constants.CRAWLER_STATS_KEY));
+        assertEquals("xoxb-test", copy.getAsString("token"));
+    }
+
+    public void test_store() {
+        final DataStoreParams crawlParamMap = new DataStoreParams();
+        final List<Object> actions = new ArrayList<>();
+        final CrawlerStatsHelper crawlerStatsHelper = new CrawlerStatsHelper() {
+            @Override
+            public void record(final Object keyObj, final StatsAction action) {
+                actions.add(action);
+            }
+        };
+        final List<DataStoreParams> storedParams = new ArrayList<>();
+        final IndexUpdateCallback callback = new IndexUpdateCallback() {
+            @Override
+            public void store(final DataStoreParams paramMap, final Map<String, Object> dataMap) {
+                storedParams.add(paramMap);
+            }
+
+            @Override
+            public long getExecuteTime() {
+                return 0;
+            }
+
+            @Override
+            public long getDocumentSize() {
+                return 0;
+            }
+
+            @Override
+            public void commit() {
+            }
+        };
+        final DocumentContext context = new DocumentContext(crawlParamMap, "url", crawlerStatsHelper);
+        final Map<String, Object> dataMap = new HashMap<>();
+        dataMap.put("url", "https://example.slack.com/archives/C1/p1");
+        context.store(callback, dataMap);
+
+        assertEquals(1, storedParams.size());
+        assertSame(context.getParamMap(), storedParams.get(0));
+        assertEquals(List.of(StatsAction.FINISHED), actions);
+    }
+}
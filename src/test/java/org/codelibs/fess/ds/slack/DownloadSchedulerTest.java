@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DownloadSchedulerTest extends UnitDsTestCase {
+
+    public void test_smallFilesFirst() throws Exception {
+        try (DownloadScheduler scheduler = new DownloadScheduler(1, 10, 0L)) {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch blocker = new CountDownLatch(1);
+            final List<Long> order = Collections.synchronizedList(new ArrayList<>());
+            // occupies the only thread while the other downloads are queued
+            scheduler.execute(0L, () -> {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (final long size : new long[] { 3000L, -1L, 10L, 3000L, 200L }) {
+                scheduler.execute(size, () -> order.add(size));
+            }
+            assertEquals(5, scheduler.getQueueSize());
+            blocker.countDown();
+            assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals(List.of(10L, 200L, 3000L, 3000L, -1L), order);
+        }
+    }
+
+    public void test_boundedQueue() throws Exception {
+        try (DownloadScheduler scheduler = new DownloadScheduler(1, 2, 0L)) {
+            final CountDownLatch blocker = new CountDownLatch(1);
+            final Runnable blocked = () -> {
+                try {
+                    blocker.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            // one running and two queued downloads fill the scheduler
+            for (int i = 0; i < 3; i++) {
+                scheduler.execute(100L, blocked);
+            }
+            final CountDownLatch submitted = new CountDownLatch(1);
+            final Thread submitter = new Thread(() -> {
+                scheduler.execute(10L, () -> {});
+                submitted.countDown();
+            });
+            submitter.start();
+            assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+            blocker.countDown();
+            assertTrue(submitted.await(10, TimeUnit.SECONDS));
+            submitter.join();
+            assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    public void test_inline() throws Exception {
+        try (DownloadScheduler scheduler = new DownloadScheduler(0, 0, 0L)) {
+            final Thread caller = Thread.currentThread();
+            final List<Thread> threads = new ArrayList<>();
+            scheduler.execute(100L, () -> threads.add(Thread.currentThread()));
+            assertEquals(List.of(caller), threads);
+            assertEquals(0, scheduler.getConcurrency());
+            assertTrue(scheduler.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    public void test_throttle() throws Exception {
+        final byte[] bytes = new byte[3000];
+        try (DownloadScheduler scheduler = new DownloadScheduler(1, 10, 0L)) {
+            final InputStream in = new ByteArrayInputStream(bytes);
+            assertSame(in, scheduler.throttle(in));
+        }
+        try (DownloadScheduler scheduler = new DownloadScheduler(1, 10, 10000L)) {
+            final long start = System.nanoTime();
+            try (InputStream in = scheduler.throttle(new ByteArrayInputStream(bytes))) {
+                final byte[] buffer = new byte[1000];
+                int total = 0;
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    total += n;
+                }
+                assertEquals(3000, total);
+            }
+            // the first 1000 bytes are free, the next 2000 bytes take 200ms
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150L);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hashing;
+
+public class ExtractionCacheTest extends UnitDsTestCase {
+
+    private static void deleteDir(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (final Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    public void test_putAndGet() throws Exception {
+        final Path cacheDir = Files.createTempDirectory("extraction-cache-test");
+        try {
+            final ExtractionCache cache = new ExtractionCache(cacheDir, 1000000L);
+            final String key = ExtractionCache.key("F001", 1700000000L, 100L, "tikaExtractor");
+            assertNull(cache.get(key));
+            cache.put(key, "extracted text");
+            assertEquals("extracted text", cache.get(key));
+            assertNull(cache.get(ExtractionCache.key("F001", 1700000001L, 100L, "tikaExtractor")));
+            // a text extracted differently is not served
+            assertNull(cache.get(ExtractionCache.key("F001", 1700000000L, 100L, "worker:1000")));
+            assertEquals(1, cache.size());
+            assertEquals(1L, cache.getHitCount());
+            assertEquals(3L, cache.getMissCount());
+
+            // entries are kept across crawls
+            final ExtractionCache reopened = new ExtractionCache(cacheDir, 1000000L);
+            assertEquals(1, reopened.size());
+            assertEquals(cache.getTotalBytes(), reopened.getTotalBytes());
+            assertEquals("extracted text", reopened.get(key));
+        } finally {
+            deleteDir(cacheDir);
+        }
+    }
+
+    public void test_evict() throws Exception {
+        final Path cacheDir = Files.createTempDirectory("extraction-cache-test");
+        try {
+            final ExtractionCache probe = new ExtractionCache(cacheDir, 1000000L);
+            probe.put("probe", "text 0");
+            final long entryBytes = probe.getTotalBytes();
+            deleteDir(cacheDir);
+
+            final ExtractionCache cache = new ExtractionCache(cacheDir, entryBytes * 2);
+            cache.put("key1", "text 1");
+            cache.put("key2", "text 2");
+            // key1 is used more recently than key2
+            assertEquals("text 1", cache.get("key1"));
+            cache.put("key3", "text 3");
+            assertEquals(2, cache.size());
+            assertEquals("text 1", cache.get("key1"));
+            assertNull(cache.get("key2"));
+            assertEquals("text 3", cache.get("key3"));
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                assertEquals(2L, files.count());
+            }
+        } finally {
+            deleteDir(cacheDir);
+        }
+    }
+
+    public void test_evictOnOpen() throws Exception {
+        final Path cacheDir = Files.createTempDirectory("extraction-cache-test");
+        try {
+            final ExtractionCache cache = new ExtractionCache(cacheDir, 1000000L);
+            cache.put("old", "old text");
+            cache.put("new", "new text");
+            final String oldName = Hashing.murmur3_128().hashString("old", StandardCharsets.UTF_8).toString();
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                final long now = System.currentTimeMillis();
+                for (final Path path : files.toList()) {
+                    final boolean isOld = path.getFileName().toString().startsWith(oldName);
+                    Files.setLastModifiedTime(path, FileTime.fromMillis(isOld ? now - 60000L : now));
+                }
+            }
+
+            final ExtractionCache reopened = new ExtractionCache(cacheDir, cache.getTotalBytes() - 1);
+            assertEquals(1, reopened.size());
+            assertNull(reopened.get("old"));
+            assertEquals("new text", reopened.get("new"));
+        } finally {
+            deleteDir(cacheDir);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExtractionPoolTest extends UnitDsTestCase {
+
+    public void test_execute() throws Exception {
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+        final AtomicInteger count = new AtomicInteger();
+        try (ExtractionPool pool = new ExtractionPool(2, 1, 0L)) {
+            for (int i = 0; i < 20; i++) {
+                pool.execute(() -> {
+                    threadNames.add(Thread.currentThread().getName());
+                    count.incrementAndGet();
+                });
+            }
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(20, count.get());
+        assertFalse(threadNames.contains(Thread.currentThread().getName()));
+    }
+
+    public void test_boundedQueue() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (ExtractionPool pool = new ExtractionPool(1, 1, 0L)) {
+            pool.execute(() -> {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            pool.execute(() -> {});
+            assertEquals(1, pool.getQueueSize());
+            final CountDownLatch submitted = new CountDownLatch(1);
+            final Thread submitter = new Thread(() -> {
+                pool.execute(() -> {});
+                submitted.countDown();
+            });
+            submitter.start();
+            // the third task waits for room in the queue
+            assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(submitted.await(10, TimeUnit.SECONDS));
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    public void test_inline() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        try (ExtractionPool pool = new ExtractionPool(0, 0, 0L)) {
+            pool.execute(count::incrementAndGet);
+            assertEquals(1, count.get());
+            assertEquals("text", pool.extract(() -> "text"));
+        }
+    }
+
+    public void test_extractTimeout() throws Exception {
+        try (ExtractionPool pool = new ExtractionPool(0, 0, 100L)) {
+            assertEquals("fast", pool.extract(() -> "fast"));
+            try {
+                pool.extract(() -> {
+                    Thread.sleep(10000L);
+                    return "slow";
+                });
+                fail("interrupted");
+            } catch (final ExtractionPool.ExtractionTimeoutException e) {
+                // expected
+            }
+            assertFalse(Thread.currentThread().isInterrupted());
+            // an extraction that ignores the interrupt is discarded
+            try {
+                pool.extract(() -> {
+                    final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300L);
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                    return "ignored";
+                });
+                fail("ignored");
+            } catch (final ExtractionPool.ExtractionTimeoutException e) {
+                // expected
+            }
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+public class ExtractionWorkerPoolTest extends UnitDsTestCase {
+
+    /**
+     * A worker process speaking the protocol of {@link ExtractionWorker}: it upper-cases the input,
+     * hangs on "hang", exits on "exit" and fails on "fail".
+     */
+    public static class FakeWorker {
+        public static void main(final String[] args) throws Exception {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] values = line.split("\t", 4);
+                final String input = Files.readString(Paths.get(values[1]), StandardCharsets.UTF_8);
+                switch (input) {
+                case "hang":
+                    Thread.sleep(Long.MAX_VALUE);
+                    break;
+                case "exit":
+                    System.exit(3);
+                    break;
+                case "fail":
+                    System.out.println(ExtractionWorker.ERROR_PREFIX + "broken file");
+                    break;
+                default:
+                    Files.writeString(Paths.get(values[2]), values[0] + ":" + input.toUpperCase(Locale.ROOT), StandardCharsets.UTF_8);
+                    System.out.println(ExtractionWorker.OK);
+                    break;
+                }
+                System.out.flush();
+            }
+        }
+    }
+
+    private Path workDir;
+
+    private ExtractionWorkerPool newPool(final long timeoutMillis, final int maxJobs) {
+        return newPool(timeoutMillis, maxJobs, 0L);
+    }
+
+    private ExtractionWorkerPool newPool(final long timeoutMillis, final int maxJobs, final long maxLength) {
+        final List<String> command = List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(), "-cp",
+                System.getProperty("java.class.path"), FakeWorker.class.getName());
+        return new ExtractionWorkerPool(command, 1, timeoutMillis, maxJobs, maxLength, workDir);
+    }
+
+    private Path newInput(final String text) throws IOException {
+        final Path path = Files.createTempFile(workDir, "input-", ".txt");
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+        return path;
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(workDir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("slack-extract-")).count();
+        }
+    }
+
+    private void deleteWorkDir() throws IOException {
+        try (Stream<Path> files = Files.list(workDir)) {
+            for (final Path path : files.toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+        Files.deleteIfExists(workDir);
+    }
+
+    public void test_extract() throws Exception {
+        workDir = Files.createTempDirectory("extraction-worker-test");
+        try (ExtractionWorkerPool pool = newPool(0L, 0)) {
+            assertEquals("text/plain:HELLO", pool.extract(newInput("hello"), "text/plain"));
+            assertEquals("text/csv:A,B", pool.extract(newInput("a,b"), "text/csv"));
+            assertEquals(0L, pool.getRestartCount());
+            assertEquals(0L, countFiles());
+        } finally {
+            deleteWorkDir();
+        }
+    }
+
+    public void test_failure() throws Exception {
+        workDir = Files.createTempDirectory("extraction-worker-test");
+        try (ExtractionWorkerPool pool = newPool(0L, 0)) {
+            try {
+                pool.extract(newInput("fail"), "text/plain");
+                fail("the extraction should fail");
+            } catch (final SlackDataStoreException e) {
+                assertTrue(e.getMessage().contains("broken file"));
+            }
+            // the worker keeps running
+            assertEquals("text/plain:OK", pool.extract(newInput("ok"), "text/plain"));
+            assertEquals(0L, pool.getRestartCount());
+
+            try {
+                pool.extract(newInput("exit"), "text/plain");
+                fail("the worker should exit");
+            } catch (final SlackDataStoreException e) {
+                assertTrue(e.getMessage().contains("code 3"));
+            }
+            assertEquals("text/plain:AGAIN", pool.extract(newInput("again"), "text/plain"));
+            assertEquals(1L, pool.getRestartCount());
+        } finally {
+            deleteWorkDir();
+        }
+    }
+
+    public void test_timeout() throws Exception {
+        workDir = Files.createTempDirectory("extraction-worker-test");
+        try (ExtractionWorkerPool pool = newPool(2000L, 0)) {
+            try {
+                pool.extract(newInput("hang"), "text/plain");
+                fail("the extraction should time out");
+            } catch (final ExtractionPool.ExtractionTimeoutException e) {
+                // expected
+            }
+            assertEquals("text/plain:NEXT", pool.extract(newInput("next"), "text/plain"));
+            assertEquals(1L, pool.getRestartCount());
+            assertEquals(0L, countFiles());
+        } finally {
+            deleteWorkDir();
+        }
+    }
+
+    public void test_maxLength() throws Exception {
+        workDir = Files.createTempDirectory("extraction-worker-test");
+        // the fake worker ignores the limit, so the text is truncated when it is read back
+        try (ExtractionWorkerPool pool = newPool(0L, 0, 16L)) {
+            assertEquals("text/plain:ABCDE", pool.extract(newInput("abcde"), "text/plain"));
+            assertEquals("text/plain:ABCDE", pool.extract(newInput("abcdefgh"), "text/plain"));
+            // a character is not cut
+            assertEquals("text/plain:\u00c0\u00c0", pool.extract(newInput("\u00e0\u00e0\u00e0"), "text/plain"));
+            assertEquals(0L, countFiles());
+        } finally {
+            deleteWorkDir();
+        }
+
+        final byte[] bytes = "a\u00e0\u3042".getBytes(StandardCharsets.UTF_8);
+        assertSame(bytes, ExtractionWorker.truncate(bytes, 0L));
+        assertSame(bytes, ExtractionWorker.truncate(bytes, 6L));
+        assertEquals("a\u00e0", new String(ExtractionWorker.truncate(bytes, 5L), StandardCharsets.UTF_8));
+        assertEquals("a\u00e0", new String(ExtractionWorker.truncate(bytes, 3L), StandardCharsets.UTF_8));
+        assertEquals("a", new String(ExtractionWorker.truncate(bytes, 2L), StandardCharsets.UTF_8));
+    }
+
+    public void test_maxJobs() throws Exception {
+        workDir = Files.createTempDirectory("extraction-worker-test");
+        try (ExtractionWorkerPool pool = newPool(0L, 2)) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals("text/plain:" + i, pool.extract(newInput(Integer.toString(i)), "text/plain"));
+            }
+            assertEquals(2L, pool.getRestartCount());
+        } finally {
+            deleteWorkDir();
+        }
+    }
+}
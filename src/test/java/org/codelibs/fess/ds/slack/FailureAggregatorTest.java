@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class FailureAggregatorTest extends UnitDsTestCase {
+
+    public void test_batches() {
+        final List<String> stored = new ArrayList<>();
+        try (FailureAggregator failures = new FailureAggregator((errorName, url, t) -> stored.add(errorName + " " + url), 3, -1L)) {
+            failures.record("general", "java.io.IOException", "url1", new IOException("timeout"));
+            failures.record("general", "java.io.IOException", "url2", new IOException("timeout"));
+            assertTrue(stored.isEmpty());
+            failures.record("random", "java.io.IOException", "url3", new IOException("timeout"));
+            assertEquals(List.of("java.io.IOException url1", "java.io.IOException url2", "java.io.IOException url3"), stored);
+            failures.record("random", "java.lang.IllegalStateException", "url4", new IllegalStateException());
+            assertEquals(3, stored.size());
+        }
+        assertEquals(4, stored.size());
+        assertEquals("java.lang.IllegalStateException url4", stored.get(3));
+    }
+
+    public void test_maxFailureUrls() {
+        final List<String> stored = new ArrayList<>();
+        try (FailureAggregator failures = new FailureAggregator((errorName, url, t) -> stored.add(url), 10, 2L)) {
+            for (int i = 0; i < 5; i++) {
+                failures.record("general", "java.io.IOException", "url" + i, new IOException());
+            }
+            assertEquals(5L, failures.getFailureCount("java.io.IOException"));
+            assertEquals(0L, failures.getFailureCount("java.lang.IllegalStateException"));
+            assertEquals(3L, failures.getDroppedCount());
+        }
+        assertEquals(List.of("url0", "url1"), stored);
+    }
+
+    public void test_summary() {
+        try (FailureAggregator failures = new FailureAggregator((errorName, url, t) -> {}, 10, -1L)) {
+            failures.record("general", "java.io.IOException", "url1", new IOException("first"));
+            failures.record("random", "java.io.IOException", "url2", new IOException("second"));
+            failures.record("random", "java.io.IOException", "url3", new IOException("third"));
+            failures.record(null, "java.io.IOException", "url4", new IOException("fourth"));
+            final FailureAggregator.ErrorSummary summary = failures.summaries.get("java.io.IOException");
+            assertEquals(Map.of("-", 1L, "general", 1L, "random", 2L), summary.getChannelCounts());
+            assertEquals("url1", summary.firstUrl);
+            assertEquals("first", summary.firstMessage);
+        }
+    }
+
+    public void test_writerFailure() {
+        final List<String> stored = new ArrayList<>();
+        try (FailureAggregator failures = new FailureAggregator((errorName, url, t) -> {
+            if ("url1".equals(url)) {
+                throw new IllegalStateException("index is not available");
+            }
+            stored.add(url);
+        }, 2, -1L)) {
+            failures.record("general", "java.io.IOException", "url1", new IOException());
+            failures.record("general", "java.io.IOException", "url2", new IOException());
+        }
+        assertEquals(List.of("url2"), stored);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.codelibs.fess.crawler.exception.MaxLengthExceededException;
+
+public class FileDownloaderTest extends UnitDsTestCase {
+
+    private static byte[] newBytes(final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    private static long countFiles(final Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    public void test_memory() throws Exception {
+        final FileDownloader downloader = new FileDownloader(100, null, 1);
+        final byte[] bytes = newBytes(50);
+        final byte[] buffer;
+        try (FileDownloader.Content content = downloader.download(new ByteArrayInputStream(bytes), 1000L, "url")) {
+            assertFalse(content.isSpilled());
+            assertEquals(50L, content.getSize());
+            try (InputStream in = content.getInputStream()) {
+                assertTrue(Arrays.equals(bytes, in.readAllBytes()));
+            }
+            buffer = ((FileDownloader.MemoryContent) content).buffer;
+        }
+        // the buffer is reused by the next download
+        try (FileDownloader.Content content = downloader.download(new ByteArrayInputStream(bytes), 1000L, "url")) {
+            assertSame(buffer, ((FileDownloader.MemoryContent) content).buffer);
+        }
+    }
+
+    public void test_sizeHint() throws Exception {
+        final FileDownloader downloader = new FileDownloader(100, null, 1);
+        final byte[] bytes = newBytes(10);
+        try (FileDownloader.Download download = downloader.begin(1000L, "url", 10L)) {
+            assertEquals(11, download.buffer.length);
+            download.append(new ByteArrayInputStream(bytes));
+            try (FileDownloader.Content content = download.finish()) {
+                assertFalse(content.isSpilled());
+                try (InputStream in = content.getInputStream()) {
+                    assertTrue(Arrays.equals(bytes, in.readAllBytes()));
+                }
+            }
+        }
+        // the small buffer is not pooled
+        assertTrue(downloader.bufferPool.isEmpty());
+
+        // a content larger than expected grows the buffer up to the threshold
+        final byte[] larger = newBytes(80);
+        try (FileDownloader.Download download = downloader.begin(1000L, "url", 10L)) {
+            download.append(new ByteArrayInputStream(larger));
+            try (FileDownloader.Content content = download.finish()) {
+                assertFalse(content.isSpilled());
+                assertEquals(80L, content.getSize());
+                try (InputStream in = content.getInputStream()) {
+                    assertTrue(Arrays.equals(larger, in.readAllBytes()));
+                }
+            }
+        }
+        final Path spillDir = Files.createTempDirectory("file-downloader-test");
+        try {
+            final FileDownloader spilling = new FileDownloader(100, spillDir, 1);
+            final byte[] large = newBytes(1000);
+            try (FileDownloader.Download download = spilling.begin(1000L, "url", 10L)) {
+                download.append(new ByteArrayInputStream(large));
+                try (FileDownloader.Content content = download.finish()) {
+                    assertTrue(content.isSpilled());
+                    try (InputStream in = content.getInputStream()) {
+                        assertTrue(Arrays.equals(large, in.readAllBytes()));
+                    }
+                }
+            }
+            assertEquals(1, spilling.bufferPool.size());
+            assertEquals(100, spilling.bufferPool.peek().length);
+        } finally {
+            Files.deleteIfExists(spillDir);
+        }
+    }
+
+    public void test_spillFailure() throws Exception {
+        final Path spillDir = Files.createTempDirectory("file-downloader-test");
+        Files.delete(spillDir);
+        final FileDownloader downloader = new FileDownloader(100, spillDir, 1);
+        try (FileDownloader.Download download = downloader.begin(1000L, "url")) {
+            download.append(new ByteArrayInputStream(newBytes(500)));
+            fail("the spill directory does not exist");
+        } catch (final FileDownloader.SpillException e) {
+            assertTrue(e.getMessage().contains("url"));
+        }
+    }
+
+    public void test_spill() throws Exception {
+        final Path spillDir = Files.createTempDirectory("file-downloader-test");
+        try {
+            final FileDownloader downloader = new FileDownloader(100, spillDir, 1);
+            final byte[] bytes = newBytes(1000);
+            try (FileDownloader.Content content = downloader.download(new ByteArrayInputStream(bytes), 1000L, "url")) {
+                assertTrue(content.isSpilled());
+                assertEquals(1000L, content.getSize());
+                assertEquals(1L, countFiles(spillDir));
+                try (InputStream in = content.getInputStream()) {
+                    assertTrue(Arrays.equals(bytes, in.readAllBytes()));
+                }
+            }
+            assertEquals(0L, countFiles(spillDir));
+        } finally {
+            Files.deleteIfExists(spillDir);
+        }
+    }
+
+    public void test_maxBytes() throws Exception {
+        final Path spillDir = Files.createTempDirectory("file-downloader-test");
+        try {
+            final FileDownloader downloader = new FileDownloader(100, spillDir, 1);
+            try {
+                downloader.download(new ByteArrayInputStream(newBytes(51)), 50L, "url");
+                fail("in memory");
+            } catch (final MaxLengthExceededException e) {
+                // expected
+            }
+            try {
+                downloader.download(new ByteArrayInputStream(newBytes(1001)), 1000L, "url");
+                fail("spilled");
+            } catch (final MaxLengthExceededException e) {
+                // expected
+            }
+            assertEquals(0L, countFiles(spillDir));
+            // a stream that never ends is cut off at the limit
+            final InputStream endless = new InputStream() {
+                @Override
+                public int read() {
+                    return 0;
+                }
+            };
+            try {
+                downloader.download(endless, 10000L, "url");
+                fail("endless");
+            } catch (final MaxLengthExceededException e) {
+                // expected
+            }
+            assertEquals(0L, countFiles(spillDir));
+        } finally {
+            Files.deleteIfExists(spillDir);
+        }
+    }
+
+    public void test_resume() throws Exception {
+        final Path spillDir = Files.createTempDirectory("file-downloader-test");
+        try {
+            final FileDownloader downloader = new FileDownloader(100, spillDir, 1);
+            final byte[] bytes = newBytes(1000);
+            // the first stream fails after 300 bytes
+            final InputStream failing = new ByteArrayInputStream(bytes, 0, 300) {
+                @Override
+                public synchronized int read(final byte[] b, final int off, final int len) {
+                    final int n = super.read(b, off, len);
+                    if (n < 0) {
+                        throw new IllegalStateException("connection reset");
+                    }
+                    return n;
+                }
+            };
+            try (FileDownloader.Download download = downloader.begin(1000L, "url")) {
+                try {
+                    download.append(failing);
+                    fail("failing");
+                } catch (final IllegalStateException e) {
+                    // expected
+                }
+                assertEquals(300L, download.getLength());
+                download.append(new ByteArrayInputStream(bytes, 300, 700));
+                try (FileDownloader.Content content = download.finish()) {
+                    assertEquals(1000L, content.getSize());
+                    try (InputStream in = content.getInputStream()) {
+                        assertTrue(Arrays.equals(bytes, in.readAllBytes()));
+                    }
+                }
+            }
+            assertEquals(0L, countFiles(spillDir));
+            // an unfinished download deletes its spilled file
+            try (FileDownloader.Download download = downloader.begin(1000L, "url")) {
+                download.append(new ByteArrayInputStream(bytes, 0, 500));
+                assertEquals(1L, countFiles(spillDir));
+            }
+            assertEquals(0L, countFiles(spillDir));
+        } finally {
+            Files.deleteIfExists(spillDir);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.List;
+
+import org.codelibs.fess.ds.slack.api.type.File;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class FilePrefilterTest extends UnitDsTestCase {
+
+    private static File newFile(final String json) throws Exception {
+        return new ObjectMapper().readValue(json, File.class);
+    }
+
+    public void test_default() throws Exception {
+        final FilePrefilter prefilter = new FilePrefilter(List.of(), List.of(), List.of(), 0L, true);
+        assertNull(prefilter.reject(newFile("{\"name\":\"a.pdf\",\"filetype\":\"pdf\",\"size\":100}")));
+        assertNull(prefilter.reject(newFile("{\"name\":\"a\"}")));
+        assertNotNull(prefilter.reject(newFile("{\"name\":\"doc\",\"filetype\":\"gdoc\",\"is_external\":true}")));
+        assertNotNull(prefilter.reject(newFile("{\"name\":\"doc\",\"mode\":\"external\"}")));
+
+        final FilePrefilter keepExternal = new FilePrefilter(List.of(), List.of(), List.of(), 0L, false);
+        assertNull(keepExternal.reject(newFile("{\"name\":\"doc\",\"filetype\":\"gdoc\",\"is_external\":true}")));
+    }
+
+    public void test_fileTypes() throws Exception {
+        final FilePrefilter include = new FilePrefilter(List.of("PDF", " docx "), List.of(), List.of(), 0L, true);
+        assertNull(include.reject(newFile("{\"filetype\":\"pdf\",\"pretty_type\":\"PDF\"}")));
+        assertNull(include.reject(newFile("{\"filetype\":\"docx\",\"pretty_type\":\"Word Document\"}")));
+        assertNotNull(include.reject(newFile("{\"filetype\":\"mp4\",\"pretty_type\":\"MPEG 4 Video\"}")));
+        assertNotNull(include.reject(newFile("{}")));
+
+        final FilePrefilter exclude = new FilePrefilter(List.of(), List.of("MPEG 4 Video", "zip"), List.of(), 0L, true);
+        assertNotNull(exclude.reject(newFile("{\"filetype\":\"mp4\",\"pretty_type\":\"MPEG 4 Video\"}")));
+        assertNotNull(exclude.reject(newFile("{\"filetype\":\"zip\",\"pretty_type\":\"Zip\"}")));
+        assertNull(exclude.reject(newFile("{\"filetype\":\"pdf\",\"pretty_type\":\"PDF\"}")));
+    }
+
+    public void test_extensions() throws Exception {
+        final FilePrefilter prefilter = new FilePrefilter(List.of(), List.of(), List.of(".MOV", "iso"), 0L, true);
+        assertNotNull(prefilter.reject(newFile("{\"name\":\"clip.mov\"}")));
+        assertNotNull(prefilter.reject(newFile("{\"name\":\"disk.ISO\"}")));
+        assertNull(prefilter.reject(newFile("{\"name\":\"notes.txt\"}")));
+        assertNull(prefilter.reject(newFile("{\"name\":\"mov\"}")));
+        assertNull(prefilter.reject(newFile("{\"name\":\"trailing.\"}")));
+    }
+
+    public void test_minFilesize() throws Exception {
+        final FilePrefilter prefilter = new FilePrefilter(List.of(), List.of(), List.of(), 10L, true);
+        assertNotNull(prefilter.reject(newFile("{\"size\":9}")));
+        assertNull(prefilter.reject(newFile("{\"size\":10}")));
+        assertNull(prefilter.reject(newFile("{}")));
+    }
+}
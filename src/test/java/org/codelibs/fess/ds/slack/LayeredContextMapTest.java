@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LayeredContextMapTest extends UnitDsTestCase {
+
+    private Map<String, Object> newBase() {
+        final Map<String, Object> base = new LinkedHashMap<>();
+        base.put("a", "1");
+        base.put("b", "2");
+        return base;
+    }
+
+    public void test_readThrough() {
+        final Map<String, Object> base = newBase();
+        final LayeredContextMap map = new LayeredContextMap(base);
+        assertEquals("1", map.get("a"));
+        assertTrue(map.containsKey("b"));
+        assertFalse(map.containsKey("c"));
+        assertEquals(2, map.size());
+    }
+
+    public void test_putShadowsBase() {
+        final Map<String, Object> base = newBase();
+        final LayeredContextMap map = new LayeredContextMap(base);
+        assertEquals("1", map.put("a", "x"));
+        map.put("c", "3");
+        assertEquals("x", map.get("a"));
+        assertEquals("3", map.get("c"));
+        assertEquals(3, map.size());
+        assertEquals("1", base.get("a"));
+        assertFalse(base.containsKey("c"));
+        final Map<String, Object> expected = new HashMap<>();
+        expected.put("a", "x");
+        expected.put("b", "2");
+        expected.put("c", "3");
+        assertEquals(expected, new HashMap<>(map));
+        assertEquals(expected, map);
+    }
+
+    public void test_remove() {
+        final Map<String, Object> base = newBase();
+        final LayeredContextMap map = new LayeredContextMap(base);
+        map.put("a", "x");
+        assertEquals("x", map.remove("a"));
+        assertNull(map.get("a"));
+        assertFalse(map.containsKey("a"));
+        assertEquals(1, map.size());
+        map.put("a", "y");
+        assertEquals("y", map.get("a"));
+        assertEquals(2, base.size());
+    }
+
+    public void test_nullValue() {
+        final LayeredContextMap map = new LayeredContextMap(newBase());
+        map.put("a", null);
+        assertTrue(map.containsKey("a"));
+        assertNull(map.get("a"));
+        assertEquals(2, map.size());
+    }
+
+    public void test_iteratorRemoveAndSetValue() {
+        final Map<String, Object> base = newBase();
+        final LayeredContextMap map = new LayeredContextMap(base);
+        map.put("c", "3");
+        final Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Object> entry = iterator.next();
+            if ("a".equals(entry.getKey()) || "c".equals(entry.getKey())) {
+                iterator.remove();
+            } else {
+                entry.setValue("z");
+            }
+        }
+        assertEquals(1, map.size());
+        assertEquals("z", map.get("b"));
+        assertEquals("2", base.get("b"));
+    }
+
+    public void test_iteratorRemoveAfterHasNext() {
+        final Map<String, Object> base = newBase();
+        final LayeredContextMap map = new LayeredContextMap(base);
+        map.put("a", "x");
+        map.put("c", "3");
+        map.put("d", "4");
+        final Map<String, Object> expected = new HashMap<>(map);
+        final Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Object> entry = iterator.next();
+            // hasNext between next and remove must not change the entry removed
+            iterator.hasNext();
+            iterator.remove();
+            expected.remove(entry.getKey());
+            assertEquals(expected, new HashMap<>(map));
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(newBase(), base);
+    }
+
+    public void test_clear() {
+        final Map<String, Object> base = newBase();
+        final LayeredContextMap map = new LayeredContextMap(base);
+        map.put("c", "3");
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(2, base.size());
+    }
+
+}
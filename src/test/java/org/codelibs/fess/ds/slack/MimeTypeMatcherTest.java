@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.List;
+
+public class MimeTypeMatcherTest extends UnitDsTestCase {
+
+    public void test_matchAll() {
+        final MimeTypeMatcher matcher = new MimeTypeMatcher(List.of(".*"));
+        assertTrue(matcher.matches("application/pdf"));
+        assertTrue(matcher.matches(null));
+        assertTrue(matcher.verdictCache.isEmpty());
+    }
+
+    public void test_exact() {
+        final MimeTypeMatcher matcher = new MimeTypeMatcher(List.of("application/pdf", " text/plain "));
+        assertTrue(matcher.matches("application/pdf"));
+        assertTrue(matcher.matches("text/plain"));
+        assertFalse(matcher.matches("application/pdfx"));
+        assertFalse(matcher.matches(null));
+        assertTrue(matcher.patterns.isEmpty());
+    }
+
+    public void test_prefix() {
+        final MimeTypeMatcher matcher = new MimeTypeMatcher(List.of("image/*"));
+        assertTrue(matcher.matches("image/png"));
+        assertTrue(matcher.matches("image/jpeg"));
+        assertFalse(matcher.matches("application/png"));
+        assertFalse(matcher.matches("image"));
+        assertTrue(matcher.patterns.isEmpty());
+    }
+
+    public void test_regex() {
+        final MimeTypeMatcher matcher = new MimeTypeMatcher(List.of("application/vnd\\.ms-.*", "text/(html|plain)"));
+        assertTrue(matcher.matches("application/vnd.ms-excel"));
+        assertTrue(matcher.matches("text/html"));
+        assertFalse(matcher.matches("text/csv"));
+        assertEquals(2, matcher.patterns.size());
+        assertEquals(Boolean.FALSE, matcher.verdictCache.get("text/csv"));
+        assertEquals(Boolean.TRUE, matcher.verdictCache.get("text/html"));
+    }
+
+    public void test_isLiteral() {
+        assertTrue(MimeTypeMatcher.isLiteral("application/pdf"));
+        assertFalse(MimeTypeMatcher.isLiteral("application/vnd.ms-excel"));
+        assertFalse(MimeTypeMatcher.isLiteral("image/.*"));
+    }
+
+}
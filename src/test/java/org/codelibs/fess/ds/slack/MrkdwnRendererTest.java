@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MrkdwnRendererTest extends UnitDsTestCase {
+
+    private final List<String> resolved = new ArrayList<>();
+
+    private MrkdwnRenderer newRenderer() {
+        final Map<String, String> users = Map.of("U024BE7LH", "alice");
+        final Map<String, String> channels = Map.of("C123", "general");
+        return new MrkdwnRenderer(id -> {
+            resolved.add(id);
+            return users.get(id);
+        }, id -> {
+            resolved.add(id);
+            return channels.get(id);
+        });
+    }
+
+    public void test_plainText() {
+        final String text = "Hello, world";
+        assertSame(text, newRenderer().render(text));
+        assertEquals("", newRenderer().render(null));
+    }
+
+    public void test_userMention() {
+        assertEquals("Hi @alice!", newRenderer().render("Hi <@U024BE7LH>!"));
+        assertEquals("Hi @bob", newRenderer().render("Hi <@U999|bob>"));
+        assertEquals("Hi @U999", newRenderer().render("Hi <@U999>"));
+        assertEquals(List.of("U024BE7LH", "U999"), resolved);
+    }
+
+    public void test_channelLink() {
+        assertEquals("see #general", newRenderer().render("see <#C123>"));
+        assertEquals("see #random", newRenderer().render("see <#C456|random>"));
+        assertEquals(List.of("C123"), resolved);
+    }
+
+    public void test_links() {
+        assertEquals("read the docs", newRenderer().render("read <https://example.com/docs|the docs>"));
+        assertEquals("https://example.com/?a=1&b=2", newRenderer().render("<https://example.com/?a=1&amp;b=2>"));
+        assertEquals("mail bob@example.com", newRenderer().render("mail <mailto:bob@example.com>"));
+    }
+
+    public void test_specialMentions() {
+        assertEquals("@here look", newRenderer().render("<!here> look"));
+        assertEquals("@channel", newRenderer().render("<!channel|channel>"));
+        assertEquals("@devs ping", newRenderer().render("<!subteam^S123|@devs> ping"));
+        assertEquals("at Feb 18", newRenderer().render("at <!date^1392734382^{date_short}|Feb 18>"));
+    }
+
+    public void test_entities() {
+        assertEquals("a < b && c > d", newRenderer().render("a &lt; b &amp;&amp; c &gt; d"));
+        assertEquals("AT&T &x", newRenderer().render("AT&amp;T &x"));
+        assertEquals("open < bracket", newRenderer().render("open < bracket"));
+    }
+
+    public void test_collectIds() {
+        final Set<String> userIds = new HashSet<>();
+        final Set<String> channelIds = new HashSet<>();
+        MrkdwnRenderer.collectIds("<@U1> <@U2|bob> <#C1> <#C2|random> <https://example.com> <!here>", userIds, channelIds);
+        assertEquals(Set.of("U1"), userIds);
+        assertEquals(Set.of("C1"), channelIds);
+        MrkdwnRenderer.collectIds(null, userIds, channelIds);
+        MrkdwnRenderer.collectIds("<@U3", userIds, channelIds);
+        assertEquals(Set.of("U1"), userIds);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PermalinkResolverTest extends UnitDsTestCase {
+
+    public void test_getPermalink_message() {
+        final AtomicInteger calls = new AtomicInteger();
+        final PermalinkResolver resolver = new PermalinkResolver((channel, ts) -> {
+            calls.incrementAndGet();
+            return "https://acme.enterprise.slack.com/archives/" + channel + "/p" + ts.replace(".", "");
+        });
+        assertEquals("https://acme.enterprise.slack.com/archives/C123/p1600000000000100",
+                resolver.getPermalink("C123", "1600000000.000100", null));
+        assertEquals("https://acme.enterprise.slack.com/archives/C123/p1600000001000200",
+                resolver.getPermalink("C123", "1600000001.000200", null));
+        assertEquals("https://acme.enterprise.slack.com/archives/C123/p1600000002000300",
+                resolver.getPermalink("C123", "1600000002.000300", "1600000002.000300"));
+        assertEquals(1, calls.get());
+    }
+
+    public void test_getPermalink_reply() {
+        final AtomicInteger calls = new AtomicInteger();
+        final PermalinkResolver resolver = new PermalinkResolver((channel, ts) -> {
+            calls.incrementAndGet();
+            final String parent = ts.startsWith("17") ? "1700000000.000001" : "1600000000.000001";
+            return "https://acme.slack.com/archives/" + channel + "/p" + ts.replace(".", "") + "?thread_ts=" + parent + "&cid=" + channel;
+        });
+        assertEquals("https://acme.slack.com/archives/C123/p1600000005000005?thread_ts=1600000000.000001&cid=C123",
+                resolver.getPermalink("C123", "1600000005.000005", "1600000000.000001"));
+        assertEquals("https://acme.slack.com/archives/C123/p1700000009000009?thread_ts=1700000000.000001&cid=C123",
+                resolver.getPermalink("C123", "1700000009.000009", "1700000000.000001"));
+        assertEquals(1, calls.get());
+        assertEquals("https://acme.slack.com/archives/C999/p1700000009000009?thread_ts=1700000000.000001&cid=C999",
+                resolver.getPermalink("C999", "1700000009.000009", "1700000000.000001"));
+        assertEquals(2, calls.get());
+    }
+
+    public void test_getPermalink_fallback() {
+        final AtomicInteger calls = new AtomicInteger();
+        final PermalinkResolver resolver = new PermalinkResolver((channel, ts) -> {
+            calls.incrementAndGet();
+            return "https://acme.slack.com/messages/" + channel + "/" + calls.get();
+        });
+        assertEquals("https://acme.slack.com/messages/C123/1", resolver.getPermalink("C123", "1600000000.000100", null));
+        assertEquals("https://acme.slack.com/messages/C123/2", resolver.getPermalink("C123", "1600000001.000100", null));
+        assertEquals(2, calls.get());
+    }
+
+    public void test_getPermalink_nullSample() {
+        final AtomicInteger calls = new AtomicInteger();
+        final PermalinkResolver resolver = new PermalinkResolver((channel, ts) -> {
+            // the first call fails transiently
+            if (calls.incrementAndGet() == 1) {
+                return null;
+            }
+            return "https://acme.slack.com/archives/" + channel + "/p" + ts.replace(".", "");
+        });
+        assertNull(resolver.getPermalink("C123", "1600000000.000100", null));
+        assertEquals(1, calls.get());
+        // the channel is not marked unresolvable, so the next message learns the template
+        assertEquals("https://acme.slack.com/archives/C123/p1600000001000100", resolver.getPermalink("C123", "1600000001.000100", null));
+        assertEquals("https://acme.slack.com/archives/C123/p1600000002000100", resolver.getPermalink("C123", "1600000002.000100", null));
+        assertEquals(2, calls.get());
+    }
+
+    public void test_getPermalink_samplerError() {
+        final AtomicInteger calls = new AtomicInteger();
+        final PermalinkResolver resolver = new PermalinkResolver((channel, ts) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new SlackDataStoreException("rate limited");
+            }
+            return "https://acme.slack.com/archives/" + channel + "/p" + ts.replace(".", "");
+        });
+        try {
+            resolver.getPermalink("C123", "1600000000.000100", null);
+            fail("sampler error");
+        } catch (final SlackDataStoreException e) {
+            // expected
+        }
+        assertEquals("https://acme.slack.com/archives/C123/p1600000001000100", resolver.getPermalink("C123", "1600000001.000100", null));
+        assertEquals("https://acme.slack.com/archives/C123/p1600000002000100", resolver.getPermalink("C123", "1600000002.000100", null));
+        assertEquals(2, calls.get());
+    }
+
+    public void test_learn_replyWithoutThreadTs() {
+        assertNull(PermalinkResolver.learn("https://acme.slack.com/archives/C123/p1600000005000005", "C123", "1600000005.000005",
+                "1600000000.000001"));
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class ScriptFieldMapperTest extends UnitDsTestCase {
+
+    private static final Logger logger = LogManager.getLogger(ScriptFieldMapperTest.class);
+
+    private static final Set<String> FIELDS = Set.of("title", "text", "timestamp", "user", "channel", "permalink", "attachments");
+
+    private static final Set<String> STRING_FIELDS = Set.of("title", "text", "user", "channel", "permalink", "attachments");
+
+    private static ScriptFieldMapper compile(final String script) {
+        return ScriptFieldMapper.compile(script, "message", FIELDS, STRING_FIELDS);
+    }
+
+    private static Map<String, Object> newContext(final Date timestamp) {
+        final Map<String, Object> messageMap = new HashMap<>();
+        messageMap.put("title", "");
+        messageMap.put("text", "Hello");
+        messageMap.put("timestamp", timestamp);
+        messageMap.put("user", "alice");
+        messageMap.put("channel", "general");
+        messageMap.put("permalink", "https://example.slack.com/archives/C1/p1");
+        messageMap.put("attachments", "attachment");
+        final Map<String, Object> context = new HashMap<>();
+        context.put("message", messageMap);
+        return context;
+    }
+
+    public void test_fieldReference() {
+        final Date timestamp = new Date();
+        final Map<String, Object> context = newContext(timestamp);
+        assertEquals("https://example.slack.com/archives/C1/p1", compile("message.permalink").apply(context));
+        assertSame(timestamp, compile(" message.timestamp ").apply(context));
+    }
+
+    public void test_concatenation() {
+        final Map<String, Object> context = newContext(new Date());
+        assertEquals("alice #general", compile("message.user + \" #\" + message.channel").apply(context));
+        assertEquals("Hello\nattachment", compile("message.text + \"\\n\" + message.attachments").apply(context));
+        assertEquals("[alice]", compile("'[' + message.user + ']'").apply(context));
+        assertEquals("literal", compile("\"literal\"").apply(context));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void test_nullValue() {
+        final Map<String, Object> context = newContext(new Date());
+        ((Map<String, Object>) context.get("message")).put("channel", null);
+        assertNull(compile("message.channel").apply(context));
+        assertEquals("alice #null", compile("message.user + \" #\" + message.channel").apply(context));
+    }
+
+    public void test_dynamicScripts() {
+        assertNull(compile(null));
+        assertNull(compile(""));
+        assertNull(compile("message.text.trim()"));
+        assertNull(compile("message.text.substring(0, 10)"));
+        assertNull(compile("message.text ?: \"none\""));
+        assertNull(compile("message.unknown"));
+        assertNull(compile("message.timestamp + \"\""));
+        assertNull(compile("\"${message.user}\""));
+        assertNull(compile("\"\"\"text\"\"\""));
+        assertNull(compile("message.text +"));
+        assertNull(compile("message.user - message.text"));
+        assertNull(compile("other.text"));
+        assertNull(compile("\"unterminated"));
+    }
+
+    public void test_toString() {
+        assertEquals("message.user + \" #\" + message.channel", compile("message.user+\" #\"+message.channel").toString());
+    }
+
+    public void test_benchmark() {
+        // doBenchmark();
+    }
+
+    /**
+     * Measures the per-document cost of the compiled field mappings. The script engine is not on
+     * the test classpath, so there is no comparison with it and no claim of what is saved.
+     */
+    protected void doBenchmark() {
+        final Map<String, String> scriptMap = new LinkedHashMap<>();
+        scriptMap.put("title", "message.user + \" #\" + message.channel");
+        scriptMap.put("content", "message.text + \"\\n\" + message.attachments");
+        scriptMap.put("created", "message.timestamp");
+        scriptMap.put("url", "message.permalink");
+        final Map<String, ScriptFieldMapper> mapperMap = new HashMap<>();
+        scriptMap.forEach((k, v) -> mapperMap.put(k, compile(v)));
+        final Map<String, Object> context = newContext(new Date());
+        final int documents = 1_000_000;
+        long sink = 0;
+        for (int round = 0; round < 3; round++) {
+            final long start = System.nanoTime();
+            for (int i = 0; i < documents; i++) {
+                for (final Map.Entry<String, ScriptFieldMapper> entry : mapperMap.entrySet()) {
+                    sink += entry.getValue().apply(context).hashCode();
+                }
+            }
+            logger.info("round {}: compiled={}ns/doc", round, (System.nanoTime() - start) / documents);
+        }
+        assertTrue(sink != 0);
+    }
+}
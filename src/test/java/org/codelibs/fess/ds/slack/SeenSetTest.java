@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class SeenSetTest extends UnitDsTestCase {
+
+    public void test_add() {
+        try (SeenSet seenSet = new SeenSet(0L, null)) {
+            assertTrue(seenSet.add(SeenSet.messageKey("C1", "1700000000.000100")));
+            assertTrue(seenSet.add(SeenSet.messageKey("C2", "1700000000.000100")));
+            assertTrue(seenSet.add(SeenSet.threadKey("C1", "1700000000.000100")));
+            assertTrue(seenSet.add(SeenSet.fileKey("F1")));
+            assertFalse(seenSet.add(SeenSet.messageKey("C1", "1700000000.000100")));
+            assertFalse(seenSet.add(SeenSet.fileKey("F1")));
+            assertEquals(4L, seenSet.size());
+            assertEquals(2L, seenSet.getDuplicateCount());
+        }
+    }
+
+    public void test_addEncodedTimestamp() {
+        try (SeenSet seenSet = new SeenSet(0L, null)) {
+            final long ts = SlackTimestamp.parse("1700000000.000100");
+            assertTrue(seenSet.add(SeenSet.MESSAGE, "C1", ts));
+            assertTrue(seenSet.add(SeenSet.THREAD, "C1", ts));
+            assertTrue(seenSet.add(SeenSet.MESSAGE, "C2", ts));
+            assertTrue(seenSet.add(SeenSet.MESSAGE, "C1", ts + 1));
+            assertFalse(seenSet.add(SeenSet.MESSAGE, "C1", SlackTimestamp.parse("1700000000.000100")));
+        }
+    }
+
+    public void test_growth() {
+        try (SeenSet seenSet = new SeenSet(0L, null)) {
+            for (int i = 0; i < 10000; i++) {
+                assertTrue(seenSet.add(SeenSet.fileKey("F" + i)));
+            }
+            for (int i = 0; i < 10000; i++) {
+                assertFalse(seenSet.add(SeenSet.fileKey("F" + i)));
+            }
+            assertEquals(10000L, seenSet.size());
+        }
+    }
+
+    public void test_limitWithoutSpillDir() {
+        try (SeenSet seenSet = new SeenSet(100L, null)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(seenSet.add(SeenSet.fileKey("F" + i)));
+            }
+            // recorded identities are still found, new ones are processed but not recorded
+            assertFalse(seenSet.add(SeenSet.fileKey("F0")));
+            assertTrue(seenSet.add(SeenSet.fileKey("F100")));
+            assertTrue(seenSet.add(SeenSet.fileKey("F100")));
+            assertEquals(100L, seenSet.size());
+            assertTrue(seenSet.full.get());
+        }
+    }
+
+    public void test_spill() throws Exception {
+        final Path spillDir = Files.createTempDirectory("seen-set-test");
+        try {
+            try (SeenSet seenSet = new SeenSet(100L, spillDir)) {
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(seenSet.add(SeenSet.messageKey("C1", Integer.toString(i))));
+                }
+                assertTrue(seenSet.spillCount.get() > 0);
+                assertTrue(seenSet.memoryCount.get() <= 100L);
+                assertEquals(1000L, seenSet.size());
+                for (int i = 0; i < 1000; i++) {
+                    assertFalse(seenSet.add(SeenSet.messageKey("C1", Integer.toString(i))));
+                }
+                try (Stream<Path> files = Files.list(spillDir)) {
+                    assertEquals(1L, files.count());
+                }
+            }
+            try (Stream<Path> files = Files.list(spillDir)) {
+                assertEquals(0L, files.count());
+            }
+        } finally {
+            Files.deleteIfExists(spillDir);
+        }
+    }
+
+    public void test_concurrentAdd() throws Exception {
+        try (SeenSet seenSet = new SeenSet(0L, null)) {
+            final AtomicInteger added = new AtomicInteger();
+            final List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        if (seenSet.add(SeenSet.fileKey("F" + i))) {
+                            added.incrementAndGet();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(5000, added.get());
+            assertEquals(15000L, seenSet.getDuplicateCount());
+        }
+    }
+}
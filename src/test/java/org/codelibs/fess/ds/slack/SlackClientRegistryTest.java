@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.codelibs.fess.ds.slack.api.type.Channel;
+import org.codelibs.fess.ds.slack.api.type.User;
+import org.codelibs.fess.entity.DataStoreParams;
+
+import com.google.common.cache.CacheStats;
+
+public class SlackClientRegistryTest extends UnitDsTestCase {
+
+    public void test_share() {
+        final TestRegistry registry = new TestRegistry();
+        try (SlackClient client1 = registry.acquire(newParams("xoxp-1")); SlackClient client2 = registry.acquire(newParams("xoxp-1"))) {
+            assertEquals(1, registry.created.size());
+            assertEquals(2, registry.getActiveCount());
+            assertSame(client1.usersCache, client2.usersCache);
+            assertSame(client1.channelsCache, client2.channelsCache);
+            assertSame(client1.authentication, client2.authentication);
+        }
+        assertEquals(0, registry.getActiveCount());
+    }
+
+    public void test_differentSettings() {
+        final TestRegistry registry = new TestRegistry();
+        final DataStoreParams privateParams = newParams("xoxp-1");
+        privateParams.put(SlackClient.INCLUDE_PRIVATE_PARAM, "true");
+        final DataStoreParams cacheParams = newParams("xoxp-1");
+        cacheParams.put(SlackClient.USER_CACHE_SIZE_PARAM, "10");
+        try (SlackClient client1 = registry.acquire(newParams("xoxp-1")); SlackClient client2 = registry.acquire(privateParams);
+                SlackClient client3 = registry.acquire(cacheParams); SlackClient client4 = registry.acquire(newParams("xoxp-2"))) {
+            assertEquals(4, registry.created.size());
+            assertNotSame(client1.channelsCache, client2.channelsCache);
+            assertNotSame(client1.usersCache, client3.usersCache);
+            assertNotSame(client1.authentication, client4.authentication);
+        }
+    }
+
+    public void test_sharedSettingsIgnoreCrawlParams() {
+        final TestRegistry registry = new TestRegistry();
+        final DataStoreParams params = newParams("xoxp-1");
+        params.put(SlackClient.CHANNELS_PARAM, "general");
+        try (SlackClient client1 = registry.acquire(newParams("xoxp-1")); SlackClient client2 = registry.acquire(params)) {
+            assertEquals(1, registry.created.size());
+            assertSame(client1.usersCache, client2.usersCache);
+        }
+    }
+
+    public void test_release() {
+        final TestRegistry registry = new TestRegistry();
+        final SlackClient client1 = registry.acquire(newParams("xoxp-1"));
+        final SlackClient client2 = registry.acquire(newParams("xoxp-1"));
+        final TestClient shared = registry.created.get(0);
+        client1.close();
+        assertEquals(1, registry.getActiveCount());
+        assertEquals(0, shared.closeCount);
+        client2.close();
+        assertEquals(0, registry.getActiveCount());
+        assertEquals(1, shared.closeCount);
+    }
+
+    public void test_close() {
+        final TestRegistry registry = new TestRegistry();
+        registry.acquire(newParams("xoxp-1")).close();
+        assertEquals(1, registry.created.get(0).closeCount);
+        // a later crawl creates a new shared client instead of reusing the closed one
+        try (SlackClient client = registry.acquire(newParams("xoxp-1"))) {
+            assertEquals(2, registry.created.size());
+            assertSame(registry.created.get(1).usersCache, client.usersCache);
+        }
+        assertEquals(1, registry.created.get(1).closeCount);
+    }
+
+    public void test_createFailure() {
+        final TestRegistry registry = new TestRegistry() {
+            @Override
+            protected SlackClient createClient(final DataStoreParams paramMap) {
+                throw new SlackDataStoreException("warm-up failed");
+            }
+        };
+        try {
+            registry.acquire(newParams("xoxp-1"));
+            fail("acquire should fail");
+        } catch (final SlackDataStoreException e) {
+            assertEquals("warm-up failed", e.getMessage());
+        }
+        assertEquals(0, registry.getActiveCount());
+    }
+
+    public void test_cacheStatsPerClient() throws Exception {
+        final TestRegistry registry = new TestRegistry();
+        try (SlackClient client1 = registry.acquire(newParams("xoxp-1")); SlackClient client2 = registry.acquire(newParams("xoxp-1"))) {
+            final User user = new User();
+            client1.usersCache.put("U1", user);
+            assertSame(user, client1.getUser("U1"));
+            assertSame(user, client1.getUser("U1"));
+            assertSame(user, client2.getUser("U1"));
+            final CacheStats stats1 = client1.getCacheStats().get(SlackClient.USERS_CACHE);
+            final CacheStats stats2 = client2.getCacheStats().get(SlackClient.USERS_CACHE);
+            assertEquals(2, stats1.hitCount());
+            assertEquals(1, stats2.hitCount());
+            assertEquals(0, stats2.missCount());
+        }
+    }
+
+    private DataStoreParams newParams(final String token) {
+        final DataStoreParams params = new DataStoreParams();
+        params.put(SlackClient.TOKEN_PARAM, token);
+        params.put(SlackClient.RATE_LIMIT_PARAM, "false");
+        params.put(SlackClient.PREFETCH_THREADS_PARAM, "0");
+        params.put(SlackClient.FILE_PAGE_THREADS_PARAM, "0");
+        return params;
+    }
+
+    static class TestRegistry extends SlackClientRegistry {
+        final List<TestClient> created = new ArrayList<>();
+
+        @Override
+        protected SlackClient createClient(final DataStoreParams paramMap) {
+            final TestClient client = new TestClient(paramMap);
+            created.add(client);
+            return client;
+        }
+    }
+
+    static class TestClient extends SlackClient {
+        int closeCount;
+
+        TestClient(final DataStoreParams paramMap) {
+            super(paramMap);
+        }
+
+        @Override
+        public void getUsers(final Consumer<User> consumer) {
+            // no warm-up
+        }
+
+        @Override
+        public void getAllChannels(final Consumer<Channel> consumer) {
+            // no warm-up
+        }
+
+        @Override
+        public void close() {
+            closeCount++;
+            super.close();
+        }
+    }
+}
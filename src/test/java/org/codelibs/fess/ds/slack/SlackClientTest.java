@@ -17,7 +17,12 @@ package org.codelibs.fess.ds.slack;
 
 import org.junit.jupiter.api.TestInfo;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,6 +30,8 @@ import org.codelibs.fess.ds.slack.api.method.bots.BotsInfoRequest;
 import org.codelibs.fess.ds.slack.api.method.bots.BotsInfoResponse;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsHistoryRequest;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsHistoryResponse;
+import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsJoinRequest;
+import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsJoinResponse;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsListRequest;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsListResponse;
 import org.codelibs.fess.ds.slack.api.method.conversations.ConversationsRepliesRequest;
@@ -33,6 +40,8 @@ import org.codelibs.fess.ds.slack.api.method.files.FilesListRequest;
 import org.codelibs.fess.ds.slack.api.method.files.FilesListResponse;
 import org.codelibs.fess.ds.slack.api.method.team.TeamInfoRequest;
 import org.codelibs.fess.ds.slack.api.method.team.TeamInfoResponse;
+import org.codelibs.fess.ds.slack.api.method.users.UsersInfoRequest;
+import org.codelibs.fess.ds.slack.api.method.users.UsersInfoResponse;
 import org.codelibs.fess.ds.slack.api.method.users.UsersListRequest;
 import org.codelibs.fess.ds.slack.api.method.users.UsersListResponse;
 import org.codelibs.fess.ds.slack.api.type.Attachment;
@@ -45,6 +54,9 @@ import org.codelibs.fess.ds.slack.api.type.User;
 import org.codelibs.fess.entity.DataStoreParams;
 import org.codelibs.fess.ds.slack.UnitDsTestCase;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheStats;
+
 public class SlackClientTest extends UnitDsTestCase {
 
     private static Logger logger = LogManager.getLogger(SlackClientTest.class);
@@ -585,6 +597,36 @@ public class SlackClientTest extends UnitDsTestCase {
         assertFalse(response.hasMore());
     }
 
+    public void testConversationsReplies_threadBroadcast() {
+        final String content = "" + //
+                "{" + //
+                "    \"ok\": true," + //
+                "    \"messages\": [" + //
+                "        {" + //
+                "            \"ts\": \"1234567891.000200\"," + //
+                "            \"thread_ts\": \"1234567890.000100\"," + //
+                "            \"subtype\": \"thread_broadcast\"" + //
+                "        }," + //
+                "        {" + //
+                "            \"ts\": \"1234567892.000300\"," + //
+                "            \"thread_ts\": \"1234567890.000100\"," + //
+                "            \"is_thread_broadcast\": true" + //
+                "        }," + //
+                "        {" + //
+                "            \"ts\": \"1234567893.000400\"," + //
+                "            \"thread_ts\": \"1234567890.000100\"" + //
+                "        }" + //
+                "    ]," + //
+                "    \"has_more\": false" + //
+                "}";
+        final ConversationsRepliesResponse response =
+                new ConversationsRepliesRequest(null, null, null).parseResponse(content, ConversationsRepliesResponse.class);
+        final List<Message> messages = response.getMessages();
+        assertTrue(messages.get(0).isThreadBroadcast());
+        assertTrue(messages.get(1).isThreadBroadcast());
+        assertFalse(messages.get(2).isThreadBroadcast());
+    }
+
     // Test pagination
     public void testConversationsList_withPagination() {
         final String content = "" + //
@@ -639,4 +681,211 @@ public class SlackClientTest extends UnitDsTestCase {
         assertEquals(Integer.valueOf(5), response.getPaging().getTotal());
     }
 
+    // Test channel membership
+    public void testConversationsList_isMember() {
+        final String content = "" + //
+                "{" + //
+                "    \"ok\": true," + //
+                "    \"channels\": [" + //
+                "        {" + //
+                "            \"id\": \"C0001\"," + //
+                "            \"name\": \"member\"," + //
+                "            \"is_member\": true" + //
+                "        }," + //
+                "        {" + //
+                "            \"id\": \"C0002\"," + //
+                "            \"name\": \"not_member\"," + //
+                "            \"is_member\": false" + //
+                "        }," + //
+                "        {" + //
+                "            \"id\": \"C0003\"," + //
+                "            \"name\": \"unknown\"" + //
+                "        }" + //
+                "    ]," + //
+                "    \"response_metadata\": {" + //
+                "        \"next_cursor\": \"\"" + //
+                "    }" + //
+                "}";
+        final ConversationsListResponse response =
+                new ConversationsListRequest(null).parseResponse(content, ConversationsListResponse.class);
+        assertTrue(response.ok());
+        final List<Channel> channels = response.getChannels();
+        assertTrue(channels.get(0).isMember());
+        assertFalse(channels.get(1).isMember());
+        assertFalse(channels.get(2).isMember());
+    }
+
+    public void testConversationsJoin() {
+        final String content = "" + //
+                "{" + //
+                "    \"ok\": true," + //
+                "    \"channel\": {" + //
+                "        \"id\": \"C0001\"," + //
+                "        \"name\": \"general\"," + //
+                "        \"is_member\": true" + //
+                "    }" + //
+                "}";
+        final ConversationsJoinResponse response =
+                new ConversationsJoinRequest(null, "C0001").parseResponse(content, ConversationsJoinResponse.class);
+        assertTrue(response.ok());
+        assertEquals("C0001", response.getChannel().getId());
+        assertTrue(response.getChannel().isMember());
+    }
+
+    public void testConversationsJoin_errorResponse() {
+        final String content = "{\"ok\": false, \"error\": \"is_archived\"}";
+        final ConversationsJoinResponse response =
+                new ConversationsJoinRequest(null, "C0001").parseResponse(content, ConversationsJoinResponse.class);
+        assertFalse(response.ok());
+        assertEquals("is_archived", response.getError());
+    }
+
+    public void testGetFilePages_multiPage() {
+        for (final String threads : new String[] { "0", "2" }) {
+            final List<Integer> requested = Collections.synchronizedList(new ArrayList<>());
+            final List<String> files = new ArrayList<>();
+            try (SlackClient client = newFilePageClient(threads)) {
+                client.getFilePages(page -> {
+                    requested.add(page);
+                    return newFilePage(page, 7);
+                }, file -> files.add(file.getId()));
+            }
+            final List<String> expected = new ArrayList<>();
+            for (int page = 1; page <= 7; page++) {
+                expected.add("F" + page + "a");
+                expected.add("F" + page + "b");
+            }
+            assertEquals(expected, files);
+            Collections.sort(requested);
+            assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), requested);
+        }
+    }
+
+    public void testGetFilePages_window() {
+        final AtomicInteger maxRequested = new AtomicInteger();
+        final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        try (SlackClient client = newFilePageClient("2")) {
+            final int window = client.filePageWindow;
+            assertEquals(4, window);
+            client.getFilePages(page -> {
+                maxRequested.accumulateAndGet(page, Math::max);
+                return newFilePage(page, 20);
+            }, file -> {
+                final int page = Integer.parseInt(file.getId().substring(1, file.getId().length() - 1));
+                // pages are requested at most a window ahead of the page being consumed
+                if (maxRequested.get() > page + window - 1) {
+                    violations.add("page " + page + " consumed after page " + maxRequested.get() + " was requested");
+                }
+            });
+        }
+        assertEquals(20, maxRequested.get());
+        assertEquals(List.of(), violations);
+    }
+
+    public void testGetFilePages_laterPageError() {
+        final List<String> files = new ArrayList<>();
+        try (SlackClient client = newFilePageClient("2")) {
+            client.getFilePages(page -> {
+                if (page == 3) {
+                    throw new SlackDataStoreException("page 3 failed");
+                }
+                return newFilePage(page, 5);
+            }, file -> files.add(file.getId()));
+            fail("getFilePages should fail");
+        } catch (final SlackDataStoreException e) {
+            assertEquals("page 3 failed", e.getMessage());
+        }
+        assertEquals(List.of("F1a", "F1b", "F2a", "F2b"), files);
+    }
+
+    public void testGetFilePages_laterPageErrorResponse() {
+        final List<String> files = new ArrayList<>();
+        try (SlackClient client = newFilePageClient("2")) {
+            client.getFilePages(page -> page == 3 ? new FilesListRequest(null).parseResponse("{\"ok\": false, \"error\": \"ratelimited\"}",
+                    FilesListResponse.class) : newFilePage(page, 5), file -> files.add(file.getId()));
+        }
+        assertEquals(List.of("F1a", "F1b", "F2a", "F2b"), files);
+    }
+
+    public void testPrefetch_cacheStats() throws Exception {
+        final AtomicInteger usersInfoCalls = new AtomicInteger();
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put(SlackClient.TOKEN_PARAM, "xoxp-test");
+        paramMap.put(SlackClient.PREFETCH_THREADS_PARAM, "1");
+        paramMap.put(SlackClient.FILE_PAGE_THREADS_PARAM, "0");
+        try (SlackClient client = new SlackClient(paramMap) {
+            @Override
+            public void getUsers(final Consumer<User> consumer) {
+                // no warm-up
+            }
+
+            @Override
+            public void getAllChannels(final Consumer<Channel> consumer) {
+                // no warm-up
+            }
+
+            @Override
+            public UsersInfoRequest usersInfo(final String user) {
+                return new UsersInfoRequest(null, user) {
+                    @Override
+                    public UsersInfoResponse execute() {
+                        usersInfoCalls.incrementAndGet();
+                        return parseResponse("{\"ok\": true, \"user\": {\"id\": \"" + user + "\"}}", UsersInfoResponse.class);
+                    }
+                };
+            }
+        }) {
+            client.prefetch(List.of(new ObjectMapper().readValue("{\"user\": \"U1\", \"text\": \"hello\"}", Message.class)));
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!client.prefetchedKeys.contains(SlackClient.USERS_CACHE + ":U1") && System.nanoTime() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertEquals(1, usersInfoCalls.get());
+            assertEquals("U1", client.getUser("U1").getId());
+            assertEquals("U1", client.getUser("U1").getId());
+            assertEquals(1, usersInfoCalls.get());
+            // the prefetch made the only call, so one lookup avoided a call, as without prefetching
+            final CacheStats stats = client.getCacheStats().get(SlackClient.USERS_CACHE);
+            assertEquals(1L, stats.missCount());
+            assertEquals(1L, stats.loadSuccessCount());
+            assertEquals(1L, stats.hitCount());
+        }
+    }
+
+    public void testIsRateLimitEnabled() {
+        try (SlackClient client = newFilePageClient("0")) {
+            assertFalse(client.isRateLimitEnabled(new DataStoreParams()));
+            final DataStoreParams paramMap = new DataStoreParams();
+            paramMap.put(SlackClient.RATE_LIMIT_PARAM, "true");
+            assertTrue(client.isRateLimitEnabled(paramMap));
+            paramMap.put(SlackClient.RATE_LIMIT_PARAM, "false");
+            assertFalse(client.isRateLimitEnabled(paramMap));
+        }
+    }
+
+    private FilesListResponse newFilePage(final int page, final int pages) {
+        final String content = "{\"ok\": true, \"files\": [{\"id\": \"F" + page + "a\"}, {\"id\": \"F" + page + "b\"}],"
+                + " \"paging\": {\"page\": " + page + ", \"pages\": " + pages + "}}";
+        return new FilesListRequest(null).parseResponse(content, FilesListResponse.class);
+    }
+
+    private SlackClient newFilePageClient(final String filePageThreads) {
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put(SlackClient.TOKEN_PARAM, "xoxp-test");
+        paramMap.put(SlackClient.RATE_LIMIT_PARAM, "false");
+        paramMap.put(SlackClient.PREFETCH_THREADS_PARAM, "0");
+        paramMap.put(SlackClient.FILE_PAGE_THREADS_PARAM, filePageThreads);
+        return new SlackClient(paramMap) {
+            @Override
+            public void getUsers(final Consumer<User> consumer) {
+                // no warm-up
+            }
+
+            @Override
+            public void getAllChannels(final Consumer<Channel> consumer) {
+                // no warm-up
+            }
+        };
+    }
+
 }
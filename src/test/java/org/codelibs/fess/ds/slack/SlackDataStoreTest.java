@@ -17,18 +17,34 @@ package org.codelibs.fess.ds.slack;
 
 import org.junit.jupiter.api.TestInfo;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.codelibs.fess.ds.callback.IndexUpdateCallback;
+import org.codelibs.fess.ds.slack.api.type.Channel;
+import org.codelibs.fess.ds.slack.api.type.File;
+import org.codelibs.fess.ds.slack.api.type.Message;
+import org.codelibs.fess.ds.slack.api.type.Team;
+import org.codelibs.fess.ds.slack.api.type.User;
 import org.codelibs.fess.entity.DataStoreParams;
 import org.codelibs.fess.mylasta.direction.FessConfig;
 import org.codelibs.fess.opensearch.config.exentity.DataConfig;
 import org.codelibs.fess.util.ComponentUtil;
 import org.codelibs.fess.ds.slack.UnitDsTestCase;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheStats;
+
 public class SlackDataStoreTest extends UnitDsTestCase {
 
     private static Logger logger = LogManager.getLogger(SlackDataStoreTest.class);
@@ -196,4 +212,238 @@ public class SlackDataStoreTest extends UnitDsTestCase {
         executorService.shutdown();
     }
 
+    // Test cache statistics summary
+    public void test_getCacheStatsSummary() {
+        final CacheStats stats = new CacheStats(90, 10, 8, 2, 5000000L, 3);
+        assertEquals("requests=100, hit_rate=0.9000, misses=10, load_time=5ms, evictions=3, api_calls_avoided=90",
+                dataStore.getCacheStatsSummary(stats));
+    }
+
+    public void test_getCacheStatsSummary_perCrawl() {
+        final CacheStats before = new CacheStats(10, 5, 5, 0, 1000000L, 0);
+        final CacheStats after = new CacheStats(30, 5, 5, 0, 1000000L, 1);
+        assertEquals("requests=20, hit_rate=1.0000, misses=0, load_time=0ms, evictions=1, api_calls_avoided=20",
+                dataStore.getCacheStatsSummary(after.minus(before)));
+    }
+
+    // Test getNonMemberChannelsPolicy method
+    public void test_getNonMemberChannelsPolicy() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        assertEquals("skip", dataStore.getNonMemberChannelsPolicy(paramMap));
+        paramMap.put("non_member_channels", "JOIN");
+        assertEquals("join", dataStore.getNonMemberChannelsPolicy(paramMap));
+        paramMap.put("non_member_channels", "crawl");
+        assertEquals("crawl", dataStore.getNonMemberChannelsPolicy(paramMap));
+        paramMap.put("non_member_channels", "invalid");
+        assertEquals("skip", dataStore.getNonMemberChannelsPolicy(paramMap));
+    }
+
+    public void test_getFileSource() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        assertEquals("channel", dataStore.getFileSource(paramMap));
+        paramMap.put("file_source", "Messages");
+        assertEquals("messages", dataStore.getFileSource(paramMap));
+        paramMap.put("file_source", "workspace");
+        assertEquals("workspace", dataStore.getFileSource(paramMap));
+        paramMap.put("file_source", "invalid");
+        assertEquals("channel", dataStore.getFileSource(paramMap));
+    }
+
+    public void test_getFileChannel() throws Exception {
+        final Channel general = new Channel() {
+            {
+                id = "C1";
+                name = "general";
+            }
+        };
+        final Channel secret = new Channel() {
+            {
+                id = "G1";
+                name = "secret";
+            }
+        };
+        final Map<String, Channel> channelMap = new HashMap<>();
+        channelMap.put(general.getId(), general);
+        channelMap.put(secret.getId(), secret);
+        final ObjectMapper mapper = new ObjectMapper();
+
+        assertSame(general, dataStore.getFileChannel(channelMap,
+                mapper.readValue("{\"id\":\"F1\",\"channels\":[\"C9\",\"C1\"],\"groups\":[\"G1\"]}", File.class)));
+        assertSame(secret,
+                dataStore.getFileChannel(channelMap, mapper.readValue("{\"id\":\"F2\",\"channels\":[],\"groups\":[\"G1\"]}", File.class)));
+        assertNull(dataStore.getFileChannel(channelMap, mapper.readValue("{\"id\":\"F3\",\"channels\":[\"C9\"]}", File.class)));
+        assertNull(dataStore.getFileChannel(channelMap, mapper.readValue("{\"id\":\"F4\"}", File.class)));
+    }
+
+    public void test_processMessageFiles() throws Exception {
+        final List<String> fileIds = new ArrayList<>();
+        dataStore = new SlackDataStore() {
+            @Override
+            protected void processFile(final DataConfig dataConfig, final IndexUpdateCallback callback,
+                    final Map<String, Object> configMap, final DataStoreParams paramMap, final Map<String, String> scriptMap,
+                    final Map<String, Object> defaultDataMap, final SlackClient client, final Team team, final Channel channel,
+                    final File file) {
+                fileIds.add(file.getId());
+            }
+        };
+        final Message message = new ObjectMapper().readValue("{\"ts\":\"1.1\",\"files\":["
+                + "{\"id\":\"F1\",\"permalink\":\"https://example.slack.com/files/U1/F1/a.txt\",\"mode\":\"hosted\"},"
+                + "{\"id\":\"F2\",\"mode\":\"tombstone\"},"
+                + "{\"id\":\"F3\",\"permalink\":\"https://example.slack.com/files/U1/F3/b.txt\",\"mode\":\"hidden_by_limit\"},"
+                + "{\"id\":\"F4\",\"permalink\":\"https://example.slack.com/files/U1/F4/c.txt\",\"mode\":\"snippet\"}]}",
+                Message.class);
+        final Map<String, Object> configMap = new HashMap<>();
+        configMap.put("file_crawl", true);
+        configMap.put("file_source", "channel");
+        dataStore.processMessageFiles(null, null, configMap, null, null, null, null, null, null, message);
+        assertTrue(fileIds.isEmpty());
+
+        configMap.put("file_source", "messages");
+        configMap.put("dedup", new SeenSet(100L, null));
+        dataStore.processMessageFiles(null, null, configMap, null, null, null, null, null, null, message);
+        assertEquals(List.of("F1", "F4"), fileIds);
+        // a file shared again in another message is processed once
+        dataStore.processMessageFiles(null, null, configMap, null, null, null, null, null, null, message);
+        assertEquals(List.of("F1", "F4"), fileIds);
+    }
+
+    public void test_downloadFileContent_spillFailure() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put("token", "xoxp-test");
+        paramMap.put("rate_limit", "false");
+        paramMap.put("prefetch_threads", "0");
+        paramMap.put("file_page_threads", "0");
+        final SlackClient client = new SlackClient(paramMap) {
+            @Override
+            public void getUsers(final Consumer<User> consumer) {
+                // no warm-up
+            }
+
+            @Override
+            public void getAllChannels(final Consumer<Channel> consumer) {
+                // no warm-up
+            }
+
+            @Override
+            public void downloadFile(final String fileUrl, final long offset, final FileStreamHandler handler) throws IOException {
+                attempts.incrementAndGet();
+                handler.accept(new ByteArrayInputStream(new byte[500]));
+            }
+        };
+        final Path spillDir = Files.createTempDirectory("slack-datastore-test");
+        Files.delete(spillDir);
+        final Map<String, Object> configMap = new HashMap<>();
+        configMap.put("downloader", new FileDownloader(100, spillDir, 1));
+        configMap.put("download_retries", 3L);
+        final File file = new ObjectMapper().readValue("{\"id\":\"F1\",\"name\":\"a.txt\","
+                + "\"permalink\":\"https://example.slack.com/files/U1/F1/a.txt\",\"url_private_download\":\"https://files.slack.com/F1\","
+                + "\"size\":500}", File.class);
+        try {
+            assertNull(dataStore.downloadFileContent(configMap, client, file, true));
+            // a local disk error is not retried as a network failure
+            assertEquals(1, attempts.get());
+        } finally {
+            client.close();
+        }
+    }
+
+    public void test_newFailureAggregator() {
+        // every failure URL is stored when it occurs unless batches or a limit are configured
+        final FailureAggregator defaults = dataStore.newFailureAggregator(null, new DataStoreParams());
+        assertEquals(1, defaults.batchSize);
+        assertEquals(-1L, defaults.maxFailureUrls);
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put("max_failure_urls", "1000");
+        paramMap.put("failure_batch_size", "10");
+        final FailureAggregator failures = dataStore.newFailureAggregator(null, paramMap);
+        assertEquals(1000L, failures.maxFailureUrls);
+        assertEquals(10, failures.batchSize);
+    }
+
+    public void test_getExtractionCacheKey() throws Exception {
+        final File file = new ObjectMapper().readValue("{\"id\":\"F1\",\"timestamp\":1700000000,\"size\":100}", File.class);
+        final Map<String, Object> configMap = new HashMap<>();
+        final String inJvmKey = dataStore.getExtractionCacheKey(configMap, file);
+        dataStore.setExtractorName("otherExtractor");
+        assertFalse(inJvmKey.equals(dataStore.getExtractionCacheKey(configMap, file)));
+        try (ExtractionWorkerPool workers = new ExtractionWorkerPool(List.of("java"), 1, 0L, 0, 1000L, null);
+                ExtractionWorkerPool shorterWorkers = new ExtractionWorkerPool(List.of("java"), 1, 0L, 0, 500L, null)) {
+            configMap.put("extraction_worker_pool", workers);
+            final String workerKey = dataStore.getExtractionCacheKey(configMap, file);
+            assertFalse(inJvmKey.equals(workerKey));
+            configMap.put("extraction_worker_pool", shorterWorkers);
+            assertFalse(workerKey.equals(dataStore.getExtractionCacheKey(configMap, file)));
+        }
+    }
+
+    public void test_compileScripts() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        final Map<String, String> scriptMap = new HashMap<>();
+        scriptMap.put("title", "message.user + \" #\" + message.channel");
+        scriptMap.put("url", "message.permalink");
+        scriptMap.put("content", "message.text.trim()");
+        final Map<String, ScriptFieldMapper> mapperMap = dataStore.compileScripts(paramMap, scriptMap);
+        assertEquals(2, mapperMap.size());
+        assertTrue(mapperMap.containsKey("title"));
+        assertTrue(mapperMap.containsKey("url"));
+
+        paramMap.put("script_type", "javascript");
+        assertTrue(dataStore.compileScripts(paramMap, scriptMap).isEmpty());
+    }
+
+    public void test_evaluateScripts() {
+        final DataStoreParams paramMap = new DataStoreParams();
+        final Map<String, String> scriptMap = new HashMap<>();
+        scriptMap.put("title", "message.user + \" #\" + message.channel");
+        scriptMap.put("url", "message.permalink");
+        final Map<String, Object> configMap = new HashMap<>();
+        configMap.put("script_mappers", dataStore.compileScripts(paramMap, scriptMap));
+        final Map<String, Object> messageMap = new HashMap<>();
+        messageMap.put("user", "alice");
+        messageMap.put("channel", "general");
+        messageMap.put("permalink", "https://example.slack.com/archives/C1/p1");
+        final Map<String, Object> resultMap = new HashMap<>();
+        resultMap.put("message", messageMap);
+        final Map<String, Object> dataMap = new HashMap<>();
+        dataStore.evaluateScripts(configMap, paramMap, scriptMap, resultMap, dataMap);
+        assertEquals("alice #general", dataMap.get("title"));
+        assertEquals("https://example.slack.com/archives/C1/p1", dataMap.get("url"));
+
+        // a context entry named like the script wins, as in convertValue
+        resultMap.put("message.permalink", "https://example.com/override");
+        dataStore.evaluateScripts(configMap, paramMap, scriptMap, resultMap, dataMap);
+        assertEquals("https://example.com/override", dataMap.get("url"));
+    }
+
+    public void test_getFilePreviewText() throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final Map<String, Object> configMap = new HashMap<>();
+        configMap.put("text_fast_path_mimetypes", new MimeTypeMatcher(dataStore.getTextFastPathMimeTypes(new DataStoreParams())));
+
+        final File complete =
+                mapper.readValue("{\"mimetype\":\"text/plain\",\"preview\":\"hello\",\"preview_is_truncated\":false}", File.class);
+        assertEquals("hello", dataStore.getFilePreviewText(configMap, complete));
+        final File noMoreLines = mapper.readValue("{\"mimetype\":\"application/json\",\"preview\":\"{}\",\"lines_more\":0}", File.class);
+        assertEquals("{}", dataStore.getFilePreviewText(configMap, noMoreLines));
+        final File post = mapper.readValue("{\"mimetype\":\"text/plain\",\"preview\":\"po\",\"plain_text\":\"post body\"}", File.class);
+        assertEquals("post body", dataStore.getFilePreviewText(configMap, post));
+
+        final File truncated =
+                mapper.readValue("{\"mimetype\":\"text/plain\",\"preview\":\"hel\",\"preview_is_truncated\":true}", File.class);
+        assertNull(dataStore.getFilePreviewText(configMap, truncated));
+        final File moreLines = mapper.readValue("{\"mimetype\":\"text/plain\",\"preview\":\"hel\",\"lines_more\":3}", File.class);
+        assertNull(dataStore.getFilePreviewText(configMap, moreLines));
+        final File unknown = mapper.readValue("{\"mimetype\":\"text/plain\",\"preview\":\"hel\"}", File.class);
+        assertNull(dataStore.getFilePreviewText(configMap, unknown));
+        final File pdf = mapper.readValue("{\"mimetype\":\"application/pdf\",\"preview\":\"x\",\"preview_is_truncated\":false}",
+                File.class);
+        assertNull(dataStore.getFilePreviewText(configMap, pdf));
+
+        final DataStoreParams paramMap = new DataStoreParams();
+        paramMap.put("text_fast_path_mimetypes", "");
+        assertTrue(dataStore.getTextFastPathMimeTypes(paramMap).isEmpty());
+        assertNull(dataStore.getFilePreviewText(new HashMap<>(), complete));
+    }
+
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack;
+
+public class SlackTimestampTest extends UnitDsTestCase {
+
+    public void test_parse() {
+        final long ts = SlackTimestamp.parse("1700000000.000100");
+        assertEquals(1700000000L, SlackTimestamp.seconds(ts));
+        assertEquals(100, SlackTimestamp.micros(ts));
+        assertEquals(SlackTimestamp.of(1700000000L, 100), ts);
+        assertEquals(SlackTimestamp.of(0L, 999999), SlackTimestamp.parse("0.999999"));
+    }
+
+    public void test_parse_invalid() {
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse(null));
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse(""));
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse("1700000000"));
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse("1700000000.0001"));
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse(".000100"));
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse("17000a0000.000100"));
+        assertEquals(SlackTimestamp.INVALID, SlackTimestamp.parse("-1.000100"));
+    }
+
+    public void test_ordering() {
+        // both are 1700000000.0000001 as doubles at millisecond precision
+        final long a = SlackTimestamp.parse("1700000000.000100");
+        final long b = SlackTimestamp.parse("1700000000.000101");
+        assertTrue(a < b);
+        assertTrue(SlackTimestamp.parse("999999999.999999") < SlackTimestamp.parse("1000000000.000000"));
+    }
+
+    public void test_format() {
+        assertEquals("1700000000.000100", SlackTimestamp.toString(SlackTimestamp.parse("1700000000.000100")));
+        assertEquals("1.000000", SlackTimestamp.toString(SlackTimestamp.of(1L, 0)));
+        assertEquals("1700000000000100",
+                SlackTimestamp.appendPermalinkId(new StringBuilder(), SlackTimestamp.parse("1700000000.000100")).toString());
+    }
+
+    public void test_toMillis() {
+        assertEquals(1700000000000L, SlackTimestamp.toMillis(SlackTimestamp.parse("1700000000.000100")));
+        assertEquals(1700000000001L, SlackTimestamp.toMillis(SlackTimestamp.parse("1700000000.000500")));
+        assertEquals(1700000000123L, SlackTimestamp.toMillis(SlackTimestamp.parse("1700000000.123456")));
+        assertEquals(Math.round(Double.parseDouble("1234567890.123456") * 1000),
+                SlackTimestamp.toMillis(SlackTimestamp.parse("1234567890.123456")));
+    }
+}
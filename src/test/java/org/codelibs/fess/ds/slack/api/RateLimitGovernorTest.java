@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.ds.slack.api;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.codelibs.fess.ds.slack.UnitDsTestCase;
+
+public class RateLimitGovernorTest extends UnitDsTestCase {
+
+    public void test_getTier() {
+        assertEquals(2, RateLimitGovernor.getTier("users.list"));
+        assertEquals(2, RateLimitGovernor.getTier("conversations.list"));
+        assertEquals(3, RateLimitGovernor.getTier("conversations.history"));
+        assertEquals(3, RateLimitGovernor.getTier("files.list"));
+        assertEquals(4, RateLimitGovernor.getTier("users.info"));
+        assertEquals(3, RateLimitGovernor.getTier(null));
+    }
+
+    public void test_take() {
+        // tier 3: 50 requests per minute, burst of 5
+        final double[] state = { 5.0, 0 };
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0L, RateLimitGovernor.take(state, 50, 0L));
+        }
+        assertEquals(1200L, RateLimitGovernor.take(state, 50, 0L));
+        assertEquals(600L, RateLimitGovernor.take(state, 50, 600L));
+        assertEquals(0L, RateLimitGovernor.take(state, 50, 1200L));
+        // refill never exceeds the burst size
+        RateLimitGovernor.take(state, 50, 3600000L);
+        assertEquals(4.0, state[0], 0.0001);
+    }
+
+    public void test_budget_sharedByToken() {
+        final RateLimitGovernor governor = new RateLimitGovernor();
+        final int[] rates = { 1, 20, 10, 100 };
+        final RateLimitGovernor.Budget budget1 = governor.getBudget("xoxb-token", rates, null);
+        final RateLimitGovernor.Budget budget2 = governor.getBudget("xoxb-token", rates, null);
+        final RateLimitGovernor.Budget other = governor.getBudget("xoxb-other", rates, null);
+        assertEquals(0L, budget1.tryAcquire(3, 10));
+        assertTrue(budget2.tryAcquire(3, 10) > 0L);
+        assertEquals(0L, other.tryAcquire(3, 10));
+        assertEquals(0L, budget2.tryAcquire(2, 20));
+    }
+
+    public void test_budget_bucketFile() throws Exception {
+        final Path file = Files.createTempFile("slack-rate-limit", ".bin");
+        try {
+            final RateLimitGovernor governor = new RateLimitGovernor();
+            final RateLimitGovernor.Budget budget = governor.getBudget("xoxb-token", null, file);
+            assertNotNull(budget.bucketFile);
+            for (int i = 0; i < 5; i++) {
+                assertEquals(0L, budget.tryAcquire(3, 50));
+            }
+            assertTrue(budget.tryAcquire(3, 50) > 0L);
+            assertTrue(governor.localBucketMap.isEmpty());
+            assertSame(budget.bucketFile, governor.getBudget("xoxb-token", null, file).bucketFile);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}